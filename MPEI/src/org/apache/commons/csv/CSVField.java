@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.csv;
+
+/**
+ * A value of a record read with {@link CSVParser#nextFields()}, as a slice of the buffer of the parser.
+ *
+ * <p>
+ * Nothing is copied until {@link #toString()} is called. The slice is only valid until the parser reads the next
+ * record: the buffer is then overwritten and the same {@code CSVField} instances are reused.
+ * </p>
+ */
+public final class CSVField implements CharSequence {
+
+    private final StringBuilder buffer;
+    private int start;
+    private int end;
+
+    CSVField(final StringBuilder buffer, final int start, final int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    void set(final int start, final int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * Checks whether the value has no chars.
+     *
+     * @return true if the length is 0.
+     */
+    public boolean isEmpty() {
+        return end == start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return buffer.charAt(start + index);
+    }
+
+    /**
+     * Returns a slice of this value over the same buffer, nothing is copied.
+     */
+    @Override
+    public CSVField subSequence(final int from, final int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("start " + from + ", end " + to + ", length " + length());
+        }
+        return new CSVField(buffer, start + from, start + to);
+    }
+
+    /**
+     * Removes the leading and trailing whitespace from this slice, like {@link String#trim()} but without copying.
+     *
+     * @return this slice.
+     */
+    public CSVField trim() {
+        while (start < end && buffer.charAt(start) <= Constants.SP) {
+            start++;
+        }
+        while (end > start && buffer.charAt(end - 1) <= Constants.SP) {
+            end--;
+        }
+        return this;
+    }
+
+    /**
+     * Compares the chars of this value with a char sequence.
+     *
+     * @param cs
+     *            the char sequence to compare with.
+     * @return true if both have the same chars.
+     */
+    public boolean contentEquals(final CharSequence cs) {
+        if (cs == null || cs.length() != length()) {
+            return false;
+        }
+        for (int i = 0; i < cs.length(); i++) {
+            if (buffer.charAt(start + i) != cs.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the value to a new {@link String}.
+     *
+     * @return the value.
+     */
+    @Override
+    public String toString() {
+        return buffer.substring(start, end);
+    }
+}
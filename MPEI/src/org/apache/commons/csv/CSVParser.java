@@ -357,6 +357,30 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
 
     private final Token reusableToken = new Token();
 
+    /** Header column of every projected value, null when every column is read. */
+    private int[] projection;
+
+    /** Projected value index of every header column, -1 for the columns that are skipped. */
+    private int[] projectionIndexes;
+
+    /** A mapping of the projected column names to their index in the projected records. */
+    private Map<String, Integer> projectionHeaderMap;
+
+    /** The projected values of the record being parsed. */
+    private String[] projectedValues;
+
+    /** Index of the field being parsed in its record. */
+    private int fieldIndex;
+
+    /** The values of the last record read with nextFields(), slices of the token content reused for every record. */
+    private CSVField[] fields = new CSVField[0];
+
+    /** Values of the last record read with nextFields() that are null. */
+    private boolean[] nullFields = new boolean[0];
+
+    /** Number of values of the last record read with nextFields(). */
+    private int numFields;
+
     /**
      * Customized CSV parser using the given {@link CSVFormat}
      *
@@ -417,13 +441,24 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
     }
 
     private void addRecordValue(final boolean lastRecord) {
+        final int index = this.projection == null ? -1 : this.getProjectionIndex(this.fieldIndex);
+        this.fieldIndex++;
+        if (this.projection != null && index < 0) {
+            // skipped column, the lexer did not keep its content
+            return;
+        }
         final String input = this.reusableToken.content.toString();
         final String inputClean = this.format.getTrim() ? input.trim() : input;
         if (lastRecord && inputClean.isEmpty() && this.format.getTrailingDelimiter()) {
             return;
         }
         final String nullString = this.format.getNullString();
-        this.recordList.add(inputClean.equals(nullString) ? null : inputClean);
+        final String value = inputClean.equals(nullString) ? null : inputClean;
+        if (this.projection == null) {
+            this.recordList.add(value);
+        } else {
+            this.projectedValues[index] = value;
+        }
     }
 
     /**
@@ -573,7 +608,11 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
      * @return the header map.
      */
     Map<String, Integer> getHeaderMapRaw() {
-        return this.headerMap;
+        return this.projectionHeaderMap != null ? this.projectionHeaderMap : this.headerMap;
+    }
+
+    private int getProjectionIndex(final int column) {
+        return column < this.projectionIndexes.length ? this.projectionIndexes[column] : -1;
     }
 
     /**
@@ -586,6 +625,58 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
         return headerNames;
     }
 
+    /**
+     * Restricts the records to the given columns.
+     *
+     * <p>
+     * The records read afterwards only have the values of these columns, in the given order, so
+     * {@code record.get(i)} is the value of {@code names[i]}. The values of the other columns are still read to find
+     * where the record ends, but their content is not kept and no {@link String} is created for them.
+     * {@link CSVRecord#get(String)} works with the given names. A value is null if the record does not have that
+     * column.
+     * </p>
+     *
+     * <p>
+     * Must be called before the first record is read, the records share the projected header mapping.
+     * </p>
+     *
+     * @param names
+     *            the names of the columns to keep.
+     * @throws IllegalStateException
+     *             if no header mapping was specified.
+     * @throws IllegalArgumentException
+     *             if a name is not in the header or is given twice.
+     */
+    public void setProjection(final String... names) {
+        Assertions.notNull(names, "names");
+        if (this.headerMap == null) {
+            throw new IllegalStateException("No header mapping was specified, the columns can't be found by name");
+        }
+        final int[] columns = new int[names.length];
+        final Map<String, Integer> projectedMap = createEmptyHeaderMap();
+        int maxColumn = -1;
+        for (int i = 0; i < names.length; i++) {
+            final Integer column = this.headerMap.get(names[i]);
+            if (column == null) {
+                throw new IllegalArgumentException(String.format("Mapping for %s not found, expected one of %s",
+                    names[i], this.headerMap.keySet()));
+            }
+            if (projectedMap.put(names[i], Integer.valueOf(i)) != null) {
+                throw new IllegalArgumentException("The projection contains a duplicate name: " + names[i]);
+            }
+            columns[i] = column.intValue();
+            maxColumn = Math.max(maxColumn, columns[i]);
+        }
+        final int[] indexes = new int[maxColumn + 1];
+        Arrays.fill(indexes, -1);
+        for (int i = 0; i < columns.length; i++) {
+            indexes[columns[i]] = i;
+        }
+        this.projection = columns;
+        this.projectionIndexes = indexes;
+        this.projectionHeaderMap = projectedMap;
+    }
+
     /**
      * Returns the current record number in the input stream.
      *
@@ -647,6 +738,153 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
         return csvRecordIterator;
     }
 
+    /**
+     * Reads the next record without creating a {@link CSVRecord} or a {@link String} per value.
+     *
+     * <p>
+     * Every value is appended to one buffer, reused from record to record, and exposed as a {@link CSVField} slice
+     * of it through {@link #getField(int)}. The slices are only valid until the next record is read, call
+     * {@link CSVField#toString()} to keep a value. {@link CSVFormat#getTrim()} and the null string are applied on the
+     * slices, without copying. Comments are skipped. Works with {@link #setProjection(String...)}, in which case
+     * {@code getField(i)} is the value of the i-th projected column.
+     * </p>
+     *
+     * @return false at the end of the input.
+     * @throws IOException
+     *             on parse error or input read-failure
+     */
+    public boolean nextFields() throws IOException {
+        final StringBuilder content = this.reusableToken.content;
+        content.setLength(0);
+        this.fieldIndex = 0;
+        this.numFields = 0;
+        if (this.projection != null) {
+            this.numFields = this.projection.length;
+            this.ensureFields(this.numFields);
+            Arrays.fill(this.nullFields, 0, this.numFields, true);
+        }
+        boolean hasValues = false;
+        do {
+            // the content is kept, every value is appended after the previous one
+            this.reusableToken.resetKeepContent();
+            this.reusableToken.skip = this.projection != null && this.getProjectionIndex(this.fieldIndex) < 0;
+            final int start = content.length();
+            this.lexer.nextToken(this.reusableToken);
+            switch (this.reusableToken.type) {
+            case TOKEN:
+                hasValues |= this.addField(start, false);
+                break;
+            case EORECORD:
+                hasValues |= this.addField(start, true);
+                break;
+            case EOF:
+                if (this.reusableToken.isReady) {
+                    hasValues |= this.addField(start, true);
+                }
+                break;
+            case INVALID:
+                throw new IOException("(line " + this.getCurrentLineNumber() + ") invalid parse sequence");
+            case COMMENT:
+                content.setLength(start);
+                this.reusableToken.type = TOKEN; // Read another token
+                break;
+            default:
+                throw new IllegalStateException("Unexpected Token type: " + this.reusableToken.type);
+            }
+        } while (this.reusableToken.type == TOKEN);
+
+        if (this.projection == null ? !hasValues : this.fieldIndex == 0) {
+            this.numFields = 0;
+            return false;
+        }
+        this.recordNumber++;
+        return true;
+    }
+
+    /**
+     * Returns the number of values of the last record read with {@link #nextFields()}.
+     *
+     * @return the number of values, the number of projected columns with a projection.
+     */
+    public int getFieldCount() {
+        return this.numFields;
+    }
+
+    /**
+     * Returns a value of the last record read with {@link #nextFields()}.
+     *
+     * @param i
+     *            the index of the value, or of the projected column.
+     * @return a slice of the value, valid until the next record is read, or null if it is the format null string or
+     *         the record does not have the projected column.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if i is not lower than {@link #getFieldCount()}.
+     */
+    public CSVField getField(final int i) {
+        if (i >= this.numFields) {
+            throw new ArrayIndexOutOfBoundsException("Index " + i + " but the record only has " + this.numFields
+                + " values");
+        }
+        return this.nullFields[i] ? null : this.fields[i];
+    }
+
+    /**
+     * Stores the value appended after start as a slice.
+     *
+     * @return true if the value was counted in the record.
+     */
+    private boolean addField(int start, final boolean lastRecord) {
+        final int index = this.projection == null ? this.numFields : this.getProjectionIndex(this.fieldIndex);
+        this.fieldIndex++;
+        if (index < 0) {
+            // skipped column, the lexer did not keep its content
+            return false;
+        }
+        final StringBuilder content = this.reusableToken.content;
+        int end = content.length();
+        if (this.format.getTrim()) {
+            while (start < end && content.charAt(start) <= Constants.SP) {
+                start++;
+            }
+            while (end > start && content.charAt(end - 1) <= Constants.SP) {
+                end--;
+            }
+        }
+        if (lastRecord && start == end && this.format.getTrailingDelimiter()) {
+            return false;
+        }
+        if (this.projection == null) {
+            this.numFields++;
+            this.ensureFields(this.numFields);
+        }
+        if (this.fields[index] == null) {
+            this.fields[index] = new CSVField(content, start, end);
+        }
+        this.fields[index].set(start, end);
+        this.nullFields[index] = this.isNullString(content, start, end);
+        return true;
+    }
+
+    private boolean isNullString(final StringBuilder content, final int start, final int end) {
+        final String nullString = this.format.getNullString();
+        if (nullString == null || nullString.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < nullString.length(); i++) {
+            if (content.charAt(start + i) != nullString.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureFields(final int length) {
+        if (this.fields.length < length) {
+            this.fields = Arrays.copyOf(this.fields, Math.max(length, this.fields.length * 2));
+            this.nullFields = Arrays.copyOf(this.nullFields, this.fields.length);
+        }
+    }
+
     /**
      * Parses the next record from the current point in the stream.
      *
@@ -659,8 +897,13 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
         this.recordList.clear();
         StringBuilder sb = null;
         final long startCharPosition = lexer.getCharacterPosition() + this.characterOffset;
+        this.fieldIndex = 0;
+        if (this.projection != null) {
+            this.projectedValues = new String[this.projection.length];
+        }
         do {
             this.reusableToken.reset();
+            this.reusableToken.skip = this.projection != null && this.getProjectionIndex(this.fieldIndex) < 0;
             this.lexer.nextToken(this.reusableToken);
             switch (this.reusableToken.type) {
             case TOKEN:
@@ -690,11 +933,12 @@ public final class CSVParser implements Iterable<CSVRecord>, Closeable {
             }
         } while (this.reusableToken.type == TOKEN);
 
-        if (!this.recordList.isEmpty()) {
+        if (this.projection == null ? !this.recordList.isEmpty() : this.fieldIndex > 0) {
             this.recordNumber++;
             final String comment = sb == null ? null : sb.toString();
-            result = new CSVRecord(this, this.recordList.toArray(new String[this.recordList.size()]),
-                comment, this.recordNumber, startCharPosition);
+            final String[] values = this.projection == null
+                ? this.recordList.toArray(new String[this.recordList.size()]) : this.projectedValues;
+            result = new CSVRecord(this, values, comment, this.recordNumber, startCharPosition);
         }
         return result;
     }
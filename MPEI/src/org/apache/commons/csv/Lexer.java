@@ -204,14 +204,18 @@ final class Lexer implements Closeable {
                 break;
             } else if (isEscape(ch)) {
                 final int unescaped = readEscape();
-                if (unescaped == END_OF_STREAM) { // unexpected char after escape
+                if (token.skip) {
+                    // content not needed by the parser
+                } else if (unescaped == END_OF_STREAM) { // unexpected char after escape
                     token.content.append((char) ch).append((char) reader.getLastChar());
                 } else {
                     token.content.append((char) unescaped);
                 }
                 ch = reader.read(); // continue
             } else {
-                token.content.append((char) ch);
+                if (!token.skip) {
+                    token.content.append((char) ch);
+                }
                 ch = reader.read(); // continue
             }
         }
@@ -252,7 +256,9 @@ final class Lexer implements Closeable {
 
             if (isEscape(c)) {
                 final int unescaped = readEscape();
-                if (unescaped == END_OF_STREAM) { // unexpected char after escape
+                if (token.skip) {
+                    // content not needed by the parser
+                } else if (unescaped == END_OF_STREAM) { // unexpected char after escape
                     token.content.append((char) c).append((char) reader.getLastChar());
                 } else {
                     token.content.append((char) unescaped);
@@ -261,7 +267,9 @@ final class Lexer implements Closeable {
                 if (isQuoteChar(reader.lookAhead())) {
                     // double or escaped encapsulator -> add single encapsulator to token
                     c = reader.read();
-                    token.content.append((char) c);
+                    if (!token.skip) {
+                        token.content.append((char) c);
+                    }
                 } else {
                     // token finish mark (encapsulator) reached: ignore whitespace till delimiter
                     while (true) {
@@ -287,7 +295,7 @@ final class Lexer implements Closeable {
                 // error condition (end of file before end of token)
                 throw new IOException("(startline " + startLineNumber +
                         ") EOF reached before encapsulated token finished");
-            } else {
+            } else if (!token.skip) {
                 // consume character
                 token.content.append((char) c);
             }
@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parses a UTF-8 CSV file directly from its memory mapped bytes.
+ *
+ * <p>
+ * Unlike {@link CSVParser}, no {@link java.io.Reader} is involved: the records are tokenised on the mapped bytes,
+ * where only the start and end of the columns asked for are recorded. A value is decoded to a {@link String} only
+ * when {@link #get(int)} is called, so the other columns and the values that are never read cost no decoding and no
+ * allocation.
+ * </p>
+ *
+ * <pre>
+ * try (MappedCSVParser parser = new MappedCSVParser(path, CSVFormat.RFC4180.withFirstRecordAsHeader(), "id", "title")) {
+ *     while (parser.next()) {
+ *         String title = parser.get(1);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * The file is mapped in windows of at most 1GB, a record can not be larger than a window. The delimiter and quote
+ * character must be ASCII, escape characters and comment markers are not supported. The values are read like
+ * {@link CSVParser} does, including doubled quotes inside quoted values, {@link CSVFormat#getTrim()},
+ * {@link CSVFormat#getIgnoreSurroundingSpaces()}, {@link CSVFormat#getIgnoreEmptyLines()} and
+ * {@link CSVFormat#getNullString()}.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public final class MappedCSVParser implements Closeable {
+
+    /** Largest part of the file mapped at once. */
+    private static final int WINDOW_BYTES = 1 << 30;
+
+    private static final byte PLAIN = 0;
+    private static final byte QUOTED = 1;
+    private static final byte DOUBLED_QUOTES = 2;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final byte delimiter;
+    private final byte quote;
+    private final boolean quoting;
+    private final boolean trim;
+    private final boolean ignoreSurroundingSpaces;
+    private final boolean ignoreEmptyLines;
+    private final String nullString;
+
+    /** The current window of the file. */
+    private MappedByteBuffer buffer;
+    /** Used to copy values out of the window. */
+    private ByteBuffer reader;
+    /** File position of the window. */
+    private long base;
+    private int limit;
+    /** Start of the next record in the window. */
+    private int position;
+
+    private final String[] columns;
+    private final int[] columnIndexes;
+    private final List<String> headerNames;
+
+    /** Start, end and quoting of the first fields of the current record, enough for the columns asked for. */
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private byte[] fieldKinds;
+    private int storedFields;
+    private int numFields;
+    private long recordNumber;
+    private long recordPosition;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Opens a parser for the given UTF-8 file.
+     *
+     * @param path
+     *            the file to parse.
+     * @param format
+     *            the CSV format, it must have a header, given or read from the file.
+     * @param columns
+     *            the names of the columns that will be read, {@link #get(int)} takes an index into them.
+     * @throws IOException
+     *             If an I/O error occurs or the header is not valid CSV.
+     * @throws IllegalArgumentException
+     *             if the format is not supported or a column is not in the header.
+     */
+    public MappedCSVParser(final Path path, final CSVFormat format, final String... columns) throws IOException {
+        Assertions.notNull(path, "path");
+        Assertions.notNull(format, "format");
+        if (format.getDelimiter() >= 0x80 || format.isQuoteCharacterSet() && format.getQuoteCharacter() >= 0x80) {
+            throw new IllegalArgumentException("The delimiter and quote character must be ASCII");
+        }
+        if (format.isEscapeCharacterSet() || format.isCommentMarkerSet()) {
+            throw new IllegalArgumentException("Escape characters and comment markers are not supported");
+        }
+        if (format.getHeader() == null) {
+            throw new IllegalArgumentException("No header mapping was specified, the columns can't be found by name");
+        }
+        this.delimiter = (byte) format.getDelimiter();
+        this.quoting = format.isQuoteCharacterSet();
+        this.quote = quoting ? (byte) format.getQuoteCharacter().charValue() : 0;
+        this.trim = format.getTrim();
+        this.ignoreSurroundingSpaces = format.getIgnoreSurroundingSpaces();
+        this.ignoreEmptyLines = format.getIgnoreEmptyLines();
+        this.nullString = format.getNullString();
+        this.columns = columns.clone();
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            map(0);
+            final String[] header = format.getHeader();
+            if (header.length == 0) {
+                // every field of the header record is kept
+                this.headerNames = next(Integer.MAX_VALUE) ? getAll() : Collections.<String>emptyList();
+            } else {
+                this.headerNames = Collections.unmodifiableList(Arrays.asList(header.clone()));
+                if (format.getSkipHeaderRecord()) {
+                    next(0);
+                }
+            }
+            final Map<String, Integer> headerMap = format.getIgnoreHeaderCase()
+                ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new LinkedHashMap<>();
+            for (int i = 0; i < headerNames.size(); i++) {
+                headerMap.putIfAbsent(headerNames.get(i), Integer.valueOf(i));
+            }
+            this.columnIndexes = new int[columns.length];
+            int maxIndex = -1;
+            for (int i = 0; i < columns.length; i++) {
+                final Integer index = headerMap.get(columns[i]);
+                if (index == null) {
+                    throw new IllegalArgumentException(String.format("Mapping for %s not found, expected one of %s",
+                        columns[i], headerMap.keySet()));
+                }
+                columnIndexes[i] = index.intValue();
+                maxIndex = Math.max(maxIndex, columnIndexes[i]);
+            }
+            this.storedFields = maxIndex + 1;
+            this.recordNumber = 0;
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false at the end of the file.
+     * @throws IOException
+     *             If an I/O error occurs or the record is not valid CSV.
+     */
+    public boolean next() throws IOException {
+        return next(storedFields);
+    }
+
+    /**
+     * Decodes a value of the current record.
+     *
+     * @param i
+     *            index of the column in the names given to the constructor.
+     * @return the value, or null if it is the format null string.
+     * @throws IllegalArgumentException
+     *             if the record does not have that column.
+     */
+    public String get(final int i) {
+        final int index = columnIndexes[i];
+        if (index >= numFields) {
+            throw new IllegalArgumentException(String.format(
+                "Index for header '%s' is %d but CSVRecord only has %d values!", columns[i], Integer.valueOf(index),
+                Integer.valueOf(numFields)));
+        }
+        return decode(index);
+    }
+
+    /**
+     * Decodes a value of the current record.
+     *
+     * @param name
+     *            one of the column names given to the constructor.
+     * @return the value, or null if it is the format null string.
+     * @throws IllegalArgumentException
+     *             if the column was not given to the constructor or the record does not have it.
+     */
+    public String get(final String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(name)) {
+                return get(i);
+            }
+        }
+        throw new IllegalArgumentException(String.format("Column %s was not asked for, expected one of %s", name,
+            Arrays.toString(columns)));
+    }
+
+    /**
+     * Returns the header names of the file.
+     *
+     * @return read-only list of header names.
+     */
+    public List<String> getHeaderNames() {
+        return headerNames;
+    }
+
+    /**
+     * Returns the number of the current record, the header is not counted.
+     *
+     * @return the record number, starting at 1.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Returns the byte position in the file where the current record starts.
+     *
+     * @return the byte position.
+     */
+    public long getBytePosition() {
+        return recordPosition;
+    }
+
+    /**
+     * Closes the file. The mapped windows are released by the garbage collector.
+     *
+     * @throws IOException
+     *             If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean next(final int store) throws IOException {
+        for (;;) {
+            if (position >= limit) {
+                if (atEnd()) {
+                    numFields = 0;
+                    return false;
+                }
+                map(base + position);
+            }
+            final int end = scanRecord(position, Math.max(store, 1));
+            if (end < 0) {
+                // the record goes past the window, which is moved to start at the record
+                if (position == 0) {
+                    throw new IOException("Record at byte " + base + " is larger than " + WINDOW_BYTES + " bytes");
+                }
+                map(base + position);
+                continue;
+            }
+            final int start = position;
+            position = end;
+            if (ignoreEmptyLines && numFields == 1 && fieldKinds[0] == PLAIN && fieldStarts[0] == fieldEnds[0]) {
+                continue;
+            }
+            recordNumber++;
+            recordPosition = base + start;
+            return true;
+        }
+    }
+
+    /**
+     * Finds the fields of the record starting at p.
+     *
+     * @return the position after the record, or -1 if the window ends before the record does.
+     */
+    private int scanRecord(int p, final int store) throws IOException {
+        numFields = 0;
+        final boolean end = atEnd();
+        for (;;) {
+            if (ignoreSurroundingSpaces) {
+                while (p < limit && isWhitespace(buffer.get(p))) {
+                    p++;
+                }
+            }
+            int start = p;
+            final int fieldEnd;
+            byte kind = PLAIN;
+            if (quoting && p < limit && buffer.get(p) == quote) {
+                kind = QUOTED;
+                start = ++p;
+                for (;;) {
+                    if (p >= limit) {
+                        if (end) {
+                            throw new IOException("EOF reached before encapsulated token finished, started at byte "
+                                + (base + start - 1));
+                        }
+                        return -1;
+                    }
+                    if (buffer.get(p) == quote) {
+                        if (p + 1 >= limit && !end) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && buffer.get(p + 1) == quote) {
+                            kind = DOUBLED_QUOTES;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                fieldEnd = p++;
+                while (p < limit && isWhitespace(buffer.get(p))) {
+                    p++;
+                }
+                if (p < limit && !isEndOfField(buffer.get(p))) {
+                    throw new IOException("Invalid char between encapsulated token and delimiter at byte " + (base + p));
+                }
+            } else {
+                while (p < limit && !isEndOfField(buffer.get(p))) {
+                    p++;
+                }
+                fieldEnd = p;
+            }
+            if (p >= limit && !end) {
+                return -1;
+            }
+            if (numFields < store) {
+                storeField(start, fieldEnd, kind);
+            }
+            numFields++;
+            if (p >= limit) {
+                return p;
+            }
+            final byte b = buffer.get(p++);
+            if (b == delimiter) {
+                continue;
+            }
+            if (b == Constants.CR) {
+                if (p >= limit) {
+                    return end ? p : -1;
+                }
+                if (buffer.get(p) == Constants.LF) {
+                    p++;
+                }
+            }
+            return p;
+        }
+    }
+
+    private void storeField(final int start, final int end, final byte kind) {
+        if (fieldStarts == null || numFields >= fieldStarts.length) {
+            final int length = Math.max(8, numFields * 2);
+            fieldStarts = fieldStarts == null ? new int[length] : Arrays.copyOf(fieldStarts, length);
+            fieldEnds = fieldEnds == null ? new int[length] : Arrays.copyOf(fieldEnds, length);
+            fieldKinds = fieldKinds == null ? new byte[length] : Arrays.copyOf(fieldKinds, length);
+        }
+        fieldStarts[numFields] = start;
+        fieldEnds[numFields] = end;
+        fieldKinds[numFields] = kind;
+    }
+
+    private String decode(final int field) {
+        int length = fieldEnds[field] - fieldStarts[field];
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        reader.position(fieldStarts[field]);
+        reader.get(scratch, 0, length);
+        if (fieldKinds[field] == DOUBLED_QUOTES) {
+            // every pair of quotes is one quote of the value
+            int j = 0;
+            for (int k = 0; k < length; k++) {
+                scratch[j++] = scratch[k];
+                if (scratch[k] == quote) {
+                    k++;
+                }
+            }
+            length = j;
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        if (trim || ignoreSurroundingSpaces && fieldKinds[field] == PLAIN) {
+            value = value.trim();
+        }
+        return nullString != null && nullString.equals(value) ? null : value;
+    }
+
+    private List<String> getAll() {
+        final List<String> values = new ArrayList<>(numFields);
+        for (int i = 0; i < numFields; i++) {
+            values.add(decode(i));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private void map(final long start) throws IOException {
+        base = start;
+        limit = (int) Math.min(WINDOW_BYTES, fileSize - start);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, limit);
+        reader = buffer.duplicate();
+        position = 0;
+    }
+
+    private boolean atEnd() {
+        return base + limit >= fileSize;
+    }
+
+    private boolean isEndOfField(final byte b) {
+        return b == delimiter || b == Constants.LF || b == Constants.CR;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == Constants.SP || b == Constants.TAB;
+    }
+}
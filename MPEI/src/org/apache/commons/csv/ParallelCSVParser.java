@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Parses a UTF-8 CSV file with several {@link CSVParser} instances at once.
+ *
+ * <p>
+ * The file is split into byte ranges that start and end on record boundaries. A single pass over the bytes keeps
+ * track of the quote state, so line breaks inside quoted values never start a range, and counts the characters and
+ * records before each boundary. Every range is then parsed by its own {@link CSVParser} created with
+ * {@link CSVParser#CSVParser(java.io.Reader, CSVFormat, long, long)}, so {@link CSVRecord#getCharacterPosition()}
+ * and {@link CSVRecord#getRecordNumber()} are the same as with a single parser over the whole file.
+ * </p>
+ *
+ * <p>
+ * The records are handed to the caller in file order and on the calling thread. Ranges are about 4MB whatever the
+ * size of the file, and at most two ranges per thread are parsed ahead of the caller, so the records kept in memory
+ * depend on the parallelism and not on the size of the file. A range only gets longer when a record is longer.
+ * </p>
+ *
+ * <p>
+ * The header, when read from the file, is parsed from the first range and given to the parsers of the other ranges.
+ * Formats with a comment marker are parsed as a single range, since a quote inside a comment would confuse the
+ * split.
+ * </p>
+ *
+ * <p>
+ * With {@link #setProjection(String...)} every range parser only keeps the given columns, like
+ * {@link CSVParser#setProjection(String...)}, so the records handed to the caller only have those values.
+ * </p>
+ */
+public final class ParallelCSVParser {
+
+    /** Bytes of a range, whatever the size of the file, so the records of a range use a bounded amount of memory. */
+    private static final long RANGE_BYTES = 4 << 20;
+
+    /** Ranges parsed ahead of the caller per thread. */
+    private static final int RANGES_AHEAD_PER_THREAD = 2;
+
+    /** Largest window of the split pass, a mapped buffer is at most 2GB. */
+    private static final long MAX_WINDOW_BYTES = 1 << 30;
+
+    /**
+     * A range of the file and the position of its first record.
+     */
+    static final class Range {
+
+        final long start;
+        final long end;
+        final long characterOffset;
+        final long recordNumber;
+
+        Range(final long start, final long end, final long characterOffset, final long recordNumber) {
+            this.start = start;
+            this.end = end;
+            this.characterOffset = characterOffset;
+            this.recordNumber = recordNumber;
+        }
+    }
+
+    /**
+     * Reads a mapped range of the file.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (!buffer.hasRemaining()) {
+                return len == 0 ? 0 : -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private final Path path;
+    private final CSVFormat format;
+    private final int parallelism;
+    private String[] projection;
+
+    /**
+     * Creates a parser for the given UTF-8 file.
+     *
+     * @param path
+     *            the file to parse.
+     * @param format
+     *            the CSV format.
+     * @param parallelism
+     *            the number of ranges parsed at the same time.
+     * @throws IllegalArgumentException
+     *             if the parallelism is not positive or a parameter is null.
+     */
+    public ParallelCSVParser(final Path path, final CSVFormat format, final int parallelism) {
+        Assertions.notNull(path, "path");
+        Assertions.notNull(format, "format");
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.path = path;
+        this.format = format;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Only keeps the values of the given columns, in the given order, see {@link CSVParser#setProjection(String...)}.
+     *
+     * <p>
+     * Must be called before {@link #parse(Predicate)}, the format must have a header.
+     * </p>
+     *
+     * @param names
+     *            the names of the columns to keep.
+     */
+    public void setProjection(final String... names) {
+        Assertions.notNull(names, "names");
+        this.projection = names.clone();
+    }
+
+    /**
+     * Parses the file, giving every record to the action in file order.
+     *
+     * @param action
+     *            called on the calling thread for every record, returns false to stop the parsing.
+     * @return false if the action stopped the parsing, true if every record was parsed.
+     * @throws IOException
+     *             If an I/O error occurs or the file is not valid CSV.
+     */
+    public boolean parse(final Predicate<CSVRecord> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final List<Range> ranges = split(channel);
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ArrayDeque<Future<List<CSVRecord>>> pending = new ArrayDeque<>();
+            try {
+                // the first range is started here so that its header can be given to the other ones
+                final CSVParser first = createParser(channel, ranges.get(0), format);
+                pending.add(pool.submit(first::getRecords));
+                final CSVFormat rangeFormat = rangeFormat(first);
+                int next = 1;
+                while (!pending.isEmpty()) {
+                    // a few ranges ahead of the caller, so only their records are kept in memory
+                    while (next < ranges.size() && pending.size() < parallelism * RANGES_AHEAD_PER_THREAD) {
+                        final CSVParser parser = createParser(channel, ranges.get(next++), rangeFormat);
+                        pending.add(pool.submit(parser::getRecords));
+                    }
+                    for (final CSVRecord record : pending.poll().get()) {
+                        if (!action.test(record)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Parsing was interrupted", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Error parsing " + path, e.getCause());
+            } finally {
+                for (final Future<List<CSVRecord>> future : pending) {
+                    future.cancel(true);
+                }
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parses the file, returning every record in file order.
+     *
+     * @return list of {@link CSVRecord CSVRecords}, may be empty
+     * @throws IOException
+     *             If an I/O error occurs or the file is not valid CSV.
+     */
+    public List<CSVRecord> getRecords() throws IOException {
+        final List<CSVRecord> records = new ArrayList<>();
+        parse(records::add);
+        return records;
+    }
+
+    /**
+     * Format of the ranges after the first one: they start with a record, never with the header.
+     */
+    private CSVFormat rangeFormat(final CSVParser first) {
+        if (format.getHeader() == null) {
+            return format;
+        }
+        final List<String> headerNames = first.getHeaderNames();
+        return format.withHeader(headerNames.toArray(new String[headerNames.size()])).withSkipHeaderRecord(false);
+    }
+
+    private CSVParser createParser(final FileChannel channel, final Range range, final CSVFormat rangeFormat)
+        throws IOException {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start, range.end - range.start);
+        final CSVParser parser = new CSVParser(new InputStreamReader(new ByteBufferInputStream(buffer),
+            StandardCharsets.UTF_8), rangeFormat, range.characterOffset, range.recordNumber);
+        if (projection != null) {
+            parser.setProjection(projection);
+        }
+        return parser;
+    }
+
+    /**
+     * Splits the file after line breaks that are outside quoted values.
+     *
+     * <p>
+     * Characters are counted as UTF-16 chars, like the {@link java.io.Reader} of {@link CSVParser} does: every byte
+     * that is not a continuation byte is a character, and 4 byte sequences are 2 chars. Records are the line breaks
+     * outside quotes, except empty lines when the format ignores them and the header record.
+     * </p>
+     */
+    List<Range> split(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Range> ranges = new ArrayList<>();
+        final String[] header = format.getHeader();
+        final long headerRecords = header != null && (header.length == 0 || format.getSkipHeaderRecord()) ? 1 : 0;
+        if (size <= RANGE_BYTES || format.isCommentMarkerSet()) {
+            ranges.add(new Range(0, size, 0, 1));
+            return ranges;
+        }
+        final int quote = format.isQuoteCharacterSet() ? format.getQuoteCharacter().charValue() : -1;
+        final int escape = format.isEscapeCharacterSet() ? format.getEscapeCharacter().charValue() : -1;
+        final boolean ignoreEmptyLines = format.getIgnoreEmptyLines();
+        long start = 0;
+        long startChars = 0;
+        long startRecords = 0;
+        long target = RANGE_BYTES;
+        boolean quoted = false;
+        boolean escaped = false;
+        boolean emptyLine = true;
+        long chars = 0;
+        long records = 0;
+        long position = 0;
+        while (position < size) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(MAX_WINDOW_BYTES, size - position));
+            while (buffer.hasRemaining()) {
+                final int b = buffer.get() & 0xFF;
+                position++;
+                if ((b & 0xC0) != 0x80) {
+                    chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+                }
+                if (escaped) {
+                    escaped = false;
+                } else if (b == escape) {
+                    escaped = true;
+                } else if (b == quote) {
+                    // a doubled quote inside a quoted value toggles twice
+                    quoted = !quoted;
+                } else if (b == Constants.LF && !quoted) {
+                    if (!emptyLine || !ignoreEmptyLines) {
+                        records++;
+                    }
+                    emptyLine = true;
+                    if (position >= target && position < size
+                        && records > headerRecords) {
+                        ranges.add(new Range(start, position, startChars,
+                            Math.max(startRecords - headerRecords, 0) + 1));
+                        start = position;
+                        startChars = chars;
+                        startRecords = records;
+                        target = start + RANGE_BYTES;
+                    }
+                    continue;
+                }
+                if (b != Constants.CR) {
+                    emptyLine = false;
+                }
+            }
+        }
+        ranges.add(new Range(start, size, startChars, Math.max(startRecords - headerRecords, 0) + 1));
+        return ranges;
+    }
+}
@@ -55,10 +55,19 @@ final class Token {
     /** Token ready flag: indicates a valid token with content (ready for the parser). */
     boolean isReady;
 
+    /** Skip flag: the parser does not need the content, so the lexer does not append it. */
+    boolean skip;
+
     void reset() {
         content.setLength(0);
+        resetKeepContent();
+    }
+
+    /** Resets the token but keeps its content, the next token is appended after it. */
+    void resetKeepContent() {
         type = INVALID;
         isReady = false;
+        skip = false;
     }
 
     /**
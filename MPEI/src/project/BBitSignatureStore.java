@@ -0,0 +1,177 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+public class BBitSignatureStore implements SignatureMatrix {
+	private static final int maxArrayLength = Integer.MAX_VALUE - 8;
+	private long[] words;
+	private final int width;
+	private final int bits;
+	private final int valuesPerWord;
+	private final int wordsPerRow;
+	private final int valueMask;
+	private final long lowBits;		// lowest bit of every value in a word
+	private int size;
+
+	/*
+	 * 		only the lowest "bits" bits of each min hash are kept, 64/bits values per long:
+	 * 		| row 0 (wordsPerRow longs) | row 1 | ... |
+	 * 		value j of a row is in word j/valuesPerWord at bit (j%valuesPerWord)*bits
+	 */
+
+	public BBitSignatureStore(int width, int bits, int initialRows) {
+		if(width <= 0) {
+			throw new IllegalArgumentException("Signature width must be positive");
+		}
+		if(bits != 1 && bits != 2 && bits != 4 && bits != 8) {
+			throw new IllegalArgumentException("Bits per value must be 1, 2, 4 or 8");
+		}
+		this.width = width;
+		this.bits = bits;
+		this.valuesPerWord = 64 / bits;
+		this.wordsPerRow = (width + this.valuesPerWord - 1) / this.valuesPerWord;
+		this.valueMask = (1 << bits) - 1;
+		long low = 0;
+		for(int i=0;i<this.valuesPerWord;i++) {
+			low |= 1L << (i * bits);
+		}
+		this.lowBits = low;
+		this.size = 0;
+		this.words = new long[Math.max(initialRows, 1) * this.wordsPerRow];
+	}
+
+	public BBitSignatureStore(int width, int bits) {
+		this(width, bits, 16);
+	}
+
+	public BBitSignatureStore(int width, int bits, long[] words) {
+		this(width, bits, 1);
+		if(words.length % this.wordsPerRow != 0) {
+			throw new IllegalArgumentException("Words do not hold complete rows of " + width + " values");
+		}
+		this.words = words;
+		this.size = words.length / this.wordsPerRow;
+	}
+
+	public int append(int rows) {
+		int first = this.size;
+		long needed = (long) (first + rows) * this.wordsPerRow;
+		if(needed > this.words.length) {
+			if(needed > maxArrayLength) {
+				throw new IllegalStateException("Signature store can not hold more than " + (maxArrayLength / this.wordsPerRow) + " rows");
+			}
+			long capacity = Math.max(needed, Math.min((long) this.words.length * 2, maxArrayLength / this.wordsPerRow * this.wordsPerRow));
+			this.words = Arrays.copyOf(this.words, (int) capacity);
+		}
+		this.size += rows;
+		return first;
+	}
+
+	public int get(int row, int column) {
+		long word = this.words[row * this.wordsPerRow + column / this.valuesPerWord];
+		return (int) (word >>> ((column % this.valuesPerWord) * this.bits)) & this.valueMask;
+	}
+
+	public void setRow(int row, int[] signature, int offset) {
+		int base = row * this.wordsPerRow;
+		for(int w=0;w<this.wordsPerRow;w++) {
+			long word = 0;
+			int first = w * this.valuesPerWord;
+			int last = Math.min(first + this.valuesPerWord, this.width);
+			for(int j=first;j<last;j++) {
+				word |= (long) (signature[offset + j] & this.valueMask) << ((j - first) * this.bits);
+			}
+			this.words[base + w] = word;
+		}
+	}
+
+	public IntBuffer getRow(int row) {
+		if(row < 0 || row >= this.size) {
+			throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + this.size + " rows");
+		}
+		int[] values = new int[this.width];
+		for(int j=0;j<this.width;j++) {
+			values[j] = get(row, j);
+		}
+		return IntBuffer.wrap(values).asReadOnlyBuffer();
+	}
+
+	// xor leaves a non zero group for every different value, each group is folded into its lowest bit and counted
+	public int countEquals(int row1, int row2) {
+		int offset1 = row1 * this.wordsPerRow;
+		int offset2 = row2 * this.wordsPerRow;
+		int different = 0;
+		for(int w=0;w<this.wordsPerRow;w++) {
+			different += Long.bitCount(fold(this.words[offset1 + w] ^ this.words[offset2 + w]));
+		}
+		// the unused groups of the last word are zero in both rows
+		return this.width - different;
+	}
+
+	public boolean hasEquals(int row1, int row2, int needed) {
+		int offset1 = row1 * this.wordsPerRow;
+		int offset2 = row2 * this.wordsPerRow;
+		int allowed = this.width - needed;
+		int different = 0;
+		for(int w=0;w<this.wordsPerRow;w++) {
+			different += Long.bitCount(fold(this.words[offset1 + w] ^ this.words[offset2 + w]));
+			if(different > allowed) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int countEquals(int row, int[] signature, int offset) {
+		int count = 0;
+		for(int j=0;j<this.width;j++) {
+			if(get(row, j) == (signature[offset + j] & this.valueMask)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// keeps the same lowest bits as setRow, so a signature that was not stored can be banded and compared with the rows
+	public void reduce(int[] signature, int offset) {
+		for(int j=0;j<this.width;j++) {
+			signature[offset + j] &= this.valueMask;
+		}
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		for(int i=0;i<this.size * this.wordsPerRow;i++) {
+			out.writeLong(this.words[i]);
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int width() {
+		return this.width;
+	}
+
+	public int getBits() {
+		return this.bits;
+	}
+
+	public int getWordsPerRow() {
+		return this.wordsPerRow;
+	}
+
+	public String toString() {
+		return "Signature store with " + this.size + " rows of " + this.width + " values of " + this.bits + " bits";
+	}
+
+	private long fold(long x) {
+		for(int shift=1;shift<this.bits;shift<<=1) {
+			x |= x >>> shift;
+		}
+		return x & this.lowBits;
+	}
+}
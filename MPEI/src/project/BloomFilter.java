@@ -1,6 +1,11 @@
 package project;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public interface BloomFilter {
 	void add(String value);
 	boolean contains(String value);
+	double getFalsePositiveProbability();		// estimated from the current content of the filter
+	void write(DataOutputStream out) throws IOException;		// see BloomFilterStorage
 }
@@ -0,0 +1,183 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+public class BloomFilterBitSet implements BloomFilter {
+	private static final int maxWords = BloomFilterStorage.maxDataBytes / 8;
+	private long[] words;
+	private LongBuffer mapped;		// read only words of a memory mapped file, copied to words on the first add
+	private long numBits;
+	private int numHashFunctions;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		bit i is bit (i & 63) of words[i >>> 6], up to 2^34 bits so that it can be saved
+	 */
+
+	public static BloomFilterBitSet withBits(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterBitSet(numBits, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterBitSet(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		if(numBits <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of bits and hash functions must be positive");
+		}
+		long numWords = (numBits + 63) >>> 6;
+		if(numWords > maxWords) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + ((long) maxWords << 6) + " bits");
+		}
+		this.words = new long[(int) numWords];
+		this.numBits = numBits;
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public BloomFilterBitSet(long size, int numHashFunctions) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, Hash.MURMUR3);
+	}
+
+	public BloomFilterBitSet(long size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+
+	public BloomFilterBitSet(int size, int numHashFunctions) {
+		this((long) size, numHashFunctions);
+	}
+
+	private BloomFilterBitSet(long numBits, int numHashFunctions, HashFunction hashFunction, LongBuffer mapped) {
+		this.words = null;
+		this.mapped = mapped;
+		this.numBits = numBits;
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public void add(String content) {
+		addHash(this.hashFunction.hash64(content));
+	}
+
+	public boolean contains(String content) {
+		return containsHash(this.hashFunction.hash64(content));
+	}
+
+	// for filters that already hashed the value with the same hash function (sharded)
+	void addHash(long hash) {
+		long step = Hash.secondHash(hash);
+		long[] words = getWords();
+		long index;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = (hash & Long.MAX_VALUE) % this.numBits;
+			words[(int) (index >>> 6)] |= 1L << index;		// the shift only uses the lowest 6 bits
+			hash += step;
+		}
+	}
+
+	boolean containsHash(long hash) {
+		long step = Hash.secondHash(hash);
+		long index;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = (hash & Long.MAX_VALUE) % this.numBits;
+			if((getWord((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+			hash += step;
+		}
+		return true;
+	}
+
+	public long getNumBits() {
+		return this.numBits;
+	}
+
+	public int getNumHashFunctions() {
+		return this.numHashFunctions;
+	}
+
+	// afterwards contains the values of both filters
+	public void union(BloomFilterBitSet other) {
+		checkCompatible(other);
+		long[] words = getWords();
+		for(int i=0;i<words.length;i++) {
+			words[i] |= other.getWord(i);
+		}
+	}
+
+	// afterwards contains the values of both filters (and some false positives of each one)
+	public void intersect(BloomFilterBitSet other) {
+		checkCompatible(other);
+		long[] words = getWords();
+		for(int i=0;i<words.length;i++) {
+			words[i] &= other.getWord(i);
+		}
+	}
+
+	public long bitCount() {
+		long count = 0;
+		for(int i=0;i<numWords();i++) {
+			count += Long.bitCount(getWord(i));
+		}
+		return count;
+	}
+
+	public boolean isMapped() {
+		return this.words == null;
+	}
+
+	public double getFalsePositiveProbability() {
+		return BloomFilterSizing.estimatedFalsePositiveProbability(bitCount(), this.numBits, this.numHashFunctions);
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.bitSet);
+		out.writeLong(this.numBits);
+		out.writeInt(this.numHashFunctions);
+		out.writeInt(numWords());
+		for(int i=0;i<numWords();i++) {
+			out.writeLong(getWord(i));
+		}
+	}
+
+	static BloomFilterBitSet read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		long numBits = buffer.getLong();
+		int numHashFunctions = buffer.getInt();
+		int numWords = buffer.getInt();
+		if(numBits <= 0 || numHashFunctions <= 0 || (numBits + 63) >>> 6 != numWords) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		return new BloomFilterBitSet(numBits, numHashFunctions, hashFunction, BloomFilterStorage.longs(buffer, numWords));
+	}
+
+	public String toString() {
+		return (isMapped() ? "Memory mapped bloom" : "Bloom") + " filter size: " + ((long) numWords() * 8) + " bytes. Bloom Filter bits: " + this.numBits;
+	}
+
+	private void checkCompatible(BloomFilterBitSet other) {
+		if(this.numBits != other.numBits || this.numHashFunctions != other.numHashFunctions || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same bits, hash functions and hash function can be merged");
+		}
+	}
+
+	private long getWord(int index) {
+		if(this.words == null) {
+			return this.mapped.get(index);
+		}
+		return this.words[index];
+	}
+
+	private int numWords() {
+		return this.words == null ? this.mapped.limit() : this.words.length;
+	}
+
+	private long[] getWords() {
+		if(this.words == null) {
+			// copy on write, the mapped file is never changed
+			this.words = new long[this.mapped.limit()];
+			this.mapped.duplicate().get(this.words);
+			this.mapped = null;
+		}
+		return this.words;
+	}
+}
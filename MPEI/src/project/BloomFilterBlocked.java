@@ -0,0 +1,188 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+public class BloomFilterBlocked implements BloomFilter {
+	private static final int wordsPerBlock = 8;		// 8 longs = 512 bits = one 64 byte cache line
+	private static final int maxBlocks = BloomFilterStorage.maxDataBytes / 8 / wordsPerBlock;
+	private long[] words;
+	private LongBuffer mapped;		// read only words of a memory mapped file, copied to words on the first add
+	private int numBlocks;
+	private int numHashFunctions;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		| block 0 (8 longs) | block 1 | ... | block numBlocks-1 |
+	 * 		the first hash picks the block, the second one gives the k bits inside it
+	 * 		(9 bits per position, 7 positions per long, then the long is mixed again)
+	 */
+
+	public static BloomFilterBlocked withBits(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterBlocked(numBits, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterBlocked(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		if(numBits <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of bits and hash functions must be positive");
+		}
+		long blocks = (numBits + wordsPerBlock * 64 - 1) / (wordsPerBlock * 64);
+		if(blocks > maxBlocks) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + ((long) maxBlocks * wordsPerBlock * 64) + " bits");
+		}
+		this.numBlocks = (int) blocks;
+		this.words = new long[this.numBlocks * wordsPerBlock];
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public BloomFilterBlocked(int size, int numHashFunctions) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, Hash.MURMUR3);
+	}
+
+	public BloomFilterBlocked(long size, double falsePositiveProbability) {
+		this(size, falsePositiveProbability, BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability));
+	}
+
+	private BloomFilterBlocked(long size, double falsePositiveProbability, int numHashFunctions) {
+		this(BloomFilterSizing.optimalBlockedNumBits(size, falsePositiveProbability, numHashFunctions, wordsPerBlock * 64), numHashFunctions, Hash.MURMUR3);
+	}
+
+	private BloomFilterBlocked(int numBlocks, int numHashFunctions, HashFunction hashFunction, LongBuffer mapped) {
+		this.words = null;
+		this.mapped = mapped;
+		this.numBlocks = numBlocks;
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		int block = (int) ((hash & Long.MAX_VALUE) % this.numBlocks) * wordsPerBlock;
+		long second = Hash.secondHash(hash);
+		long bits = second;
+		long[] words = getWords();
+		int bit;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			bit = (int) bits;
+			words[block + ((bit >>> 6) & (wordsPerBlock - 1))] |= 1L << bit;
+			if(i % 7 == 6) {
+				second = Hash.fmix64(second);
+				bits = second;
+			}
+			else {
+				bits >>>= 9;
+			}
+		}
+	}
+
+	public boolean contains(String content) {
+		long hash = this.hashFunction.hash64(content);
+		int block = (int) ((hash & Long.MAX_VALUE) % this.numBlocks) * wordsPerBlock;
+		long second = Hash.secondHash(hash);
+		long bits = second;
+		int bit;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			bit = (int) bits;
+			if((getWord(block + ((bit >>> 6) & (wordsPerBlock - 1))) & (1L << bit)) == 0) {
+				return false;
+			}
+			if(i % 7 == 6) {
+				second = Hash.fmix64(second);
+				bits = second;
+			}
+			else {
+				bits >>>= 9;
+			}
+		}
+		return true;
+	}
+
+	public long getNumBits() {
+		return (long) this.numBlocks * wordsPerBlock * 64;
+	}
+
+	public int getNumHashFunctions() {
+		return this.numHashFunctions;
+	}
+
+	public void union(BloomFilterBlocked other) {
+		checkCompatible(other);
+		long[] words = getWords();
+		for(int i=0;i<words.length;i++) {
+			words[i] |= other.getWord(i);
+		}
+	}
+
+	public void intersect(BloomFilterBlocked other) {
+		checkCompatible(other);
+		long[] words = getWords();
+		for(int i=0;i<words.length;i++) {
+			words[i] &= other.getWord(i);
+		}
+	}
+
+	// every block is picked with the same probability, the fuller ones give most of the false positives
+	public double getFalsePositiveProbability() {
+		double p = 0;
+		for(int block=0;block<this.numBlocks;block++) {
+			long count = 0;
+			for(int w=0;w<wordsPerBlock;w++) {
+				count += Long.bitCount(getWord(block * wordsPerBlock + w));
+			}
+			p += BloomFilterSizing.estimatedFalsePositiveProbability(count, wordsPerBlock * 64, this.numHashFunctions);
+		}
+		return p / this.numBlocks;
+	}
+
+	public boolean isMapped() {
+		return this.words == null;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.blocked);
+		out.writeInt(this.numBlocks);
+		out.writeInt(this.numHashFunctions);
+		for(int i=0;i<this.numBlocks * wordsPerBlock;i++) {
+			out.writeLong(getWord(i));
+		}
+	}
+
+	static BloomFilterBlocked read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int numBlocks = buffer.getInt();
+		int numHashFunctions = buffer.getInt();
+		if(numBlocks <= 0 || numBlocks > maxBlocks || numHashFunctions <= 0) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		return new BloomFilterBlocked(numBlocks, numHashFunctions, hashFunction, BloomFilterStorage.longs(buffer, numBlocks * wordsPerBlock));
+	}
+
+	public String toString() {
+		return (isMapped() ? "Memory mapped blocked" : "Blocked") + " bloom filter size: " + ((long) this.numBlocks * 64) + " bytes in " + this.numBlocks + " blocks of 64 bytes";
+	}
+
+	void checkCompatible(BloomFilterBlocked other) {
+		if(this.numBlocks != other.numBlocks || this.numHashFunctions != other.numHashFunctions || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same blocks, hash functions and hash function can be merged");
+		}
+	}
+
+	private long getWord(int index) {
+		if(this.words == null) {
+			return this.mapped.get(index);
+		}
+		return this.words[index];
+	}
+
+	private long[] getWords() {
+		if(this.words == null) {
+			// copy on write, the mapped file is never changed
+			this.words = new long[this.mapped.limit()];
+			this.mapped.duplicate().get(this.words);
+			this.mapped = null;
+		}
+		return this.words;
+	}
+}
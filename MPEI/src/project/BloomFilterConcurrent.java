@@ -0,0 +1,107 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BloomFilterConcurrent implements BloomFilter {
+	private static final int maxWords = BloomFilterStorage.maxDataBytes / 8;		// saved like BloomFilterBitSet
+	private AtomicLongArray words;
+	private long numBits;
+	private int numHashFunctions;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		same bits as BloomFilterBitSet, but every word is set with compare and swap
+	 * 		so several threads can add at the same time without locks or lost bits
+	 */
+
+	public static BloomFilterConcurrent withBits(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterConcurrent(numBits, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterConcurrent(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		if(numBits <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of bits and hash functions must be positive");
+		}
+		long numWords = (numBits + 63) >>> 6;
+		if(numWords > maxWords) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + ((long) maxWords << 6) + " bits");
+		}
+		this.words = new AtomicLongArray((int) numWords);
+		this.numBits = numBits;
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public BloomFilterConcurrent(int size, int numHashFunctions) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, Hash.MURMUR3);
+	}
+
+	public BloomFilterConcurrent(long size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		long index, mask, old;
+		int word;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = (hash & Long.MAX_VALUE) % this.numBits;
+			word = (int) (index >>> 6);
+			mask = 1L << index;
+			old = this.words.get(word);
+			// retry only while the bit is still missing, another thread may have set it
+			while((old & mask) == 0 && !this.words.compareAndSet(word, old, old | mask)) {
+				old = this.words.get(word);
+			}
+			hash += step;
+		}
+	}
+
+	public boolean contains(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		long index;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = (hash & Long.MAX_VALUE) % this.numBits;
+			if((this.words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+			hash += step;
+		}
+		return true;
+	}
+
+	public long getNumBits() {
+		return this.numBits;
+	}
+
+	public int getNumHashFunctions() {
+		return this.numHashFunctions;
+	}
+
+	public double getFalsePositiveProbability() {
+		long count = 0;
+		for(int i=0;i<this.words.length();i++) {
+			count += Long.bitCount(this.words.get(i));
+		}
+		return BloomFilterSizing.estimatedFalsePositiveProbability(count, this.numBits, this.numHashFunctions);
+	}
+
+	// same file as BloomFilterBitSet, it is loaded as one (the words are a snapshot if other threads keep adding)
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.bitSet);
+		out.writeLong(this.numBits);
+		out.writeInt(this.numHashFunctions);
+		out.writeInt(this.words.length());
+		for(int i=0;i<this.words.length();i++) {
+			out.writeLong(this.words.get(i));
+		}
+	}
+
+	public String toString() {
+		return "Concurrent bloom filter size: " + ((long) this.words.length() * 8) + " bytes. Bloom Filter bits: " + this.numBits;
+	}
+}
@@ -0,0 +1,217 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+public class BloomFilterCounting implements BloomFilter {
+	private static final int maxValue = 15; // 2^4 -1
+	private long[] array;
+	private LongBuffer mapped;		// read only counters of a memory mapped file, copied to array on the first change
+	private static final int maxLength = Integer.MAX_VALUE - 8;
+	private int numCounters;
+	private int numHashFunctions;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		4 bit counters, 16 per long: counter i is bits (i & 15)*4 .. +3 of array[i >>> 4]
+	 * 		a saturated counter (15) is never decremented again, so remove can not create false negatives
+	 */
+
+	public static BloomFilterCounting withCounters(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterCounting(numCounters, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterCounting(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		if(numCounters <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of counters and hash functions must be positive");
+		}
+		if(numCounters > maxLength) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + maxLength + " counters");
+		}
+		this.numHashFunctions = numHashFunctions;
+		this.numCounters = (int) numCounters;
+		this.array = new long[(this.numCounters + 15) / 16];
+		this.hashFunction = hashFunction;
+	}
+
+	public BloomFilterCounting(int size, int numHashFunctions, HashFunction hashFunction) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, hashFunction);
+	}
+
+	public BloomFilterCounting(int size, int numHashFunctions) {
+		this(size, numHashFunctions, Hash.MURMUR3);
+	}
+
+	public BloomFilterCounting(int size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+
+	private BloomFilterCounting(int numCounters, int numHashFunctions, HashFunction hashFunction, LongBuffer mapped) {
+		this.array = null;
+		this.mapped = mapped;
+		this.numCounters = numCounters;
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		long[] array = getArray();
+		int index;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = getIndex(hash, step, i);
+			if(getCounter(index) < maxValue) {
+				array[index >>> 4] += 1L << ((index & 15) * 4);
+			}
+		}
+	}
+
+	// only values that were added can be removed, otherwise other keys would lose their counts
+	public boolean remove(String content) {
+		if(!contains(content)) {
+			return false;
+		}
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		long[] array = getArray();
+		int index, counter;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = getIndex(hash, step, i);
+			counter = getCounter(index);
+			if(counter > 0 && counter < maxValue) {
+				array[index >>> 4] -= 1L << ((index & 15) * 4);
+			}
+		}
+		return true;
+	}
+
+	// estimated number of times the value was added (the smallest of its counters)
+	public int count(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		int min = maxValue;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			min = Math.min(min, getCounter(getIndex(hash, step, i)));
+			if(min == 0) {
+				return 0;
+			}
+		}
+		return min;
+	}
+
+	public boolean containsMoreThanOne(String content) {
+		return count(content) > 1;
+	}
+
+	public boolean contains(String content) {
+		return count(content) > 0;
+	}
+
+	public int getNumCounters() {
+		return this.numCounters;
+	}
+
+	// counters are added (saturating at 15), a value added n times to one filter and m to the other counts n+m
+	public void union(BloomFilterCounting other) {
+		checkCompatible(other);
+		long[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			long word = 0;
+			for(int j=0;j<16;j++) {
+				int counter = (int) (array[i] >>> (j * 4)) & maxValue;
+				int otherCounter = (int) (other.getWord(i) >>> (j * 4)) & maxValue;
+				word |= (long) Math.min(counter + otherCounter, maxValue) << (j * 4);
+			}
+			array[i] = word;
+		}
+	}
+
+	// smallest of both counters, only values present in both filters are kept
+	public void intersect(BloomFilterCounting other) {
+		checkCompatible(other);
+		long[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			long word = 0;
+			for(int j=0;j<16;j++) {
+				int counter = (int) (array[i] >>> (j * 4)) & maxValue;
+				int otherCounter = (int) (other.getWord(i) >>> (j * 4)) & maxValue;
+				word |= (long) Math.min(counter, otherCounter) << (j * 4);
+			}
+			array[i] = word;
+		}
+	}
+
+	public double getFalsePositiveProbability() {
+		long count = 0;
+		for(int i=0;i<this.numCounters;i++) {
+			if(getCounter(i) != 0) {
+				count++;
+			}
+		}
+		return BloomFilterSizing.estimatedFalsePositiveProbability(count, this.numCounters, this.numHashFunctions);
+	}
+
+	public boolean isMapped() {
+		return this.array == null;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.counting);
+		out.writeInt(this.numCounters);
+		out.writeInt(this.numHashFunctions);
+		for(int i=0;i<numWords();i++) {
+			out.writeLong(getWord(i));
+		}
+	}
+
+	static BloomFilterCounting read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int numCounters = buffer.getInt();
+		int numHashFunctions = buffer.getInt();
+		if(numCounters <= 0 || numCounters > maxLength || numHashFunctions <= 0) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		return new BloomFilterCounting(numCounters, numHashFunctions, hashFunction, BloomFilterStorage.longs(buffer, (numCounters + 15) / 16));
+	}
+
+	public String toString() {
+		return (isMapped() ? "Memory mapped counting" : "Counting") + " bloom filter with " + this.numCounters + " counters of 4 bits (" + ((long) numWords() * 8) + " bytes)";
+	}
+
+	void checkCompatible(BloomFilterCounting other) {
+		if(this.numCounters != other.numCounters || this.numHashFunctions != other.numHashFunctions || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same counters, hash functions and hash function can be merged");
+		}
+	}
+
+	private int getCounter(int index) {
+		return (int) (getWord(index >>> 4) >>> ((index & 15) * 4)) & maxValue;
+	}
+
+	private long getWord(int index) {
+		if(this.array == null) {
+			return this.mapped.get(index);
+		}
+		return this.array[index];
+	}
+
+	private int numWords() {
+		return (this.numCounters + 15) / 16;
+	}
+
+	private long[] getArray() {
+		if(this.array == null) {
+			// copy on write, the mapped file is never changed
+			this.array = new long[numWords()];
+			this.mapped.duplicate().get(this.array);
+			this.mapped = null;
+		}
+		return this.array;
+	}
+
+	private int getIndex(long hash, long step, int i) {
+		return (int) Hash.index(hash, step, i, this.numCounters);
+	}
+}
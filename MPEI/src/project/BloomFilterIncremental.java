@@ -1,30 +1,72 @@
 package project;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class BloomFilterIncremental implements BloomFilter {
 	private byte[] array;
+	private ByteBuffer mapped;		// read only counters of a memory mapped file, copied to array on the first add
+	private int numCounters;
 	private int numHashFunctions;
-	private static final double prob = 0.001;
+	private static final int maxLength = BloomFilterStorage.maxDataBytes;		// one byte per counter
 	private static final int maxValue = 127; // 2^7 -1
+	private HashFunction hashFunction;
 	
 	public void testMoreThanOne() {
 		int count = 0;
-		for(int i = 0; i< array.length;i++) {
-			if(array[i]>1) {
+		for(int i = 0; i< this.numCounters;i++) {
+			if(getCounter(i)>1) {
 				count++;
 			}
 		}
 		System.out.println("More than one count: " + count);
 	}
 	
+	public static BloomFilterIncremental withCounters(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterIncremental(numCounters, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterIncremental(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		if(numCounters <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of counters and hash functions must be positive");
+		}
+		if(numCounters > maxLength) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + maxLength + " counters");
+		}
+		this.numHashFunctions = numHashFunctions;
+		this.numCounters = (int) numCounters;
+		this.array = new byte[this.numCounters];
+		this.hashFunction = hashFunction;
+	}
+	
+	public BloomFilterIncremental(int size, int numHashFunctions, HashFunction hashFunction) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, hashFunction);
+	}
+	
 	public BloomFilterIncremental(int size, int numHashFunctions) {
+		this(size, numHashFunctions, Hash.MURMUR3);
+	}
+	
+	public BloomFilterIncremental(int size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+	
+	private BloomFilterIncremental(int numCounters, int numHashFunctions, HashFunction hashFunction, ByteBuffer mapped) {
+		this.array = null;
+		this.mapped = mapped;
+		this.numCounters = numCounters;
 		this.numHashFunctions = numHashFunctions;
-		this.array = new byte[calculateOptimalArraySize(size, numHashFunctions)];
+		this.hashFunction = hashFunction;
 	}
 	
 	public void add(String content) {
 		int index;
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		byte[] array = getArray();
 		for(int i=0;i<this.numHashFunctions;i++) {
-			index = Math.abs(adjustToSize(Hash.hash(content + i)));
+			index = getIndex(hash, step, i);
 			if(array[index] < this.maxValue) {
 				array[index] = (byte) (array[index] + 1);
 			}
@@ -33,9 +75,11 @@ public class BloomFilterIncremental implements BloomFilter {
 	
 	public boolean containsMoreThanOne(String content) {
 		int index;
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
 		for(int i=0;i<this.numHashFunctions;i++) {
-			index = Math.abs(adjustToSize(Hash.hash(content + i)));
-			if(array[index] <= 1) {
+			index = getIndex(hash, step, i);
+			if(getCounter(index) <= 1) {
 				return false;
 			}
 		}
@@ -44,25 +88,95 @@ public class BloomFilterIncremental implements BloomFilter {
 	
 	public boolean contains(String content) {
 		int index;
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
 		for(int i=0;i<this.numHashFunctions;i++) {
-			index = Math.abs(adjustToSize(Hash.hash(content + i)));
-			if(array[index] == 0) {
+			index = getIndex(hash, step, i);
+			if(getCounter(index) == 0) {
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	// counters are added, a value added n times to one filter and m to the other counts n+m
+	public void union(BloomFilterIncremental other) {
+		checkCompatible(other);
+		byte[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			array[i] = (byte) Math.min(array[i] + other.getCounter(i), maxValue);
+		}
+	}
+	
+	// smallest of both counters, only values present in both filters are kept
+	public void intersect(BloomFilterIncremental other) {
+		checkCompatible(other);
+		byte[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			array[i] = (byte) Math.min(array[i], other.getCounter(i));
+		}
+	}
+	
+	public double getFalsePositiveProbability() {
+		long count = 0;
+		for(int i=0;i<this.numCounters;i++) {
+			if(getCounter(i) != 0) {
+				count++;
+			}
+		}
+		return BloomFilterSizing.estimatedFalsePositiveProbability(count, this.numCounters, this.numHashFunctions);
+	}
+	
+	public boolean isMapped() {
+		return this.array == null;
+	}
+	
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.incremental);
+		out.writeInt(this.numCounters);
+		out.writeInt(this.numHashFunctions);
+		for(int i=0;i<this.numCounters;i++) {
+			out.writeByte(getCounter(i));
+		}
+	}
+	
+	static BloomFilterIncremental read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int numCounters = buffer.getInt();
+		int numHashFunctions = buffer.getInt();
+		if(numCounters <= 0 || numCounters > maxLength || numHashFunctions <= 0) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		return new BloomFilterIncremental(numCounters, numHashFunctions, hashFunction, BloomFilterStorage.bytes(buffer, numCounters));
+	}
+	
 	public String toString() {		
-		return "Bloom filter size: " + this.array.length;
+		return (isMapped() ? "Memory mapped bloom" : "Bloom") + " filter size: " + this.numCounters;
+	}
+	
+	private void checkCompatible(BloomFilterIncremental other) {
+		if(this.numCounters != other.numCounters || this.numHashFunctions != other.numHashFunctions || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same counters, hash functions and hash function can be merged");
+		}
 	}
 	
-	private int adjustToSize(int value) {
-		return value % this.array.length;
+	private int getCounter(int index) {
+		if(this.array == null) {
+			return this.mapped.get(index);
+		}
+		return this.array[index];
 	}
 	
-	private int calculateOptimalArraySize(int size, int numHashFunctions) {
-		//return (int) Math.ceil((size * Math.log(this.prob)) / Math.log(1 / Math.pow(2, Math.log(2))));
-		return (int) ((size*numHashFunctions)/Math.log(2)) * 8;		// k = (n*ln(2))/m   <=>   n = (k*m)/ln(2)
+	private int getIndex(long hash, long step, int i) {
+		return (int) Hash.index(hash, step, i, this.numCounters);
+	}
+	
+	private byte[] getArray() {
+		if(this.array == null) {
+			// copy on write, the mapped file is never changed
+			this.array = new byte[this.numCounters];
+			this.mapped.duplicate().get(this.array);
+			this.mapped = null;
+		}
+		return this.array;
 	}
-}
\ No newline at end of file
+}
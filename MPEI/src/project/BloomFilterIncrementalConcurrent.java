@@ -0,0 +1,124 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class BloomFilterIncrementalConcurrent implements BloomFilter {
+	private AtomicIntegerArray array;
+	private int numCounters;
+	private int numHashFunctions;
+	private static final int maxValue = 127; // 2^7 -1
+	private static final int maxLength = BloomFilterStorage.maxDataBytes;		// one byte per counter
+	private HashFunction hashFunction;
+
+	/*
+	 * 		same counters as BloomFilterIncremental (one byte each, saturating at 127),
+	 * 		4 counters per int so each one can be incremented with compare and swap
+	 */
+
+	public static BloomFilterIncrementalConcurrent withCounters(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterIncrementalConcurrent(numCounters, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterIncrementalConcurrent(long numCounters, int numHashFunctions, HashFunction hashFunction) {
+		if(numCounters <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of counters and hash functions must be positive");
+		}
+		if(numCounters > maxLength) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + maxLength + " counters");
+		}
+		this.numHashFunctions = numHashFunctions;
+		this.numCounters = (int) numCounters;
+		this.array = new AtomicIntegerArray((this.numCounters + 3) / 4);
+		this.hashFunction = hashFunction;
+	}
+
+	public BloomFilterIncrementalConcurrent(int size, int numHashFunctions, HashFunction hashFunction) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, hashFunction);
+	}
+
+	public BloomFilterIncrementalConcurrent(int size, int numHashFunctions) {
+		this(size, numHashFunctions, Hash.MURMUR3);
+	}
+
+	public BloomFilterIncrementalConcurrent(int size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		int index, shift, old, counter;
+		for(int i=0;i<this.numHashFunctions;i++) {
+			index = getIndex(hash, step, i);
+			shift = (index & 3) * 8;
+			do {
+				old = this.array.get(index >>> 2);
+				counter = (old >>> shift) & 0xff;
+				if(counter >= maxValue) {
+					break;
+				}
+			}
+			while(!this.array.compareAndSet(index >>> 2, old, old + (1 << shift)));
+		}
+	}
+
+	public boolean containsMoreThanOne(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		for(int i=0;i<this.numHashFunctions;i++) {
+			if(getCounter(getIndex(hash, step, i)) <= 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean contains(String content) {
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		for(int i=0;i<this.numHashFunctions;i++) {
+			if(getCounter(getIndex(hash, step, i)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getNumCounters() {
+		return this.numCounters;
+	}
+
+	public double getFalsePositiveProbability() {
+		long count = 0;
+		for(int i=0;i<this.numCounters;i++) {
+			if(getCounter(i) != 0) {
+				count++;
+			}
+		}
+		return BloomFilterSizing.estimatedFalsePositiveProbability(count, this.numCounters, this.numHashFunctions);
+	}
+
+	// same file as BloomFilterIncremental, it is loaded as one
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.incremental);
+		out.writeInt(this.numCounters);
+		out.writeInt(this.numHashFunctions);
+		for(int i=0;i<this.numCounters;i++) {
+			out.writeByte(getCounter(i));
+		}
+	}
+
+	public String toString() {
+		return "Concurrent bloom filter size: " + this.numCounters;
+	}
+
+	private int getCounter(int index) {
+		return (this.array.get(index >>> 2) >>> ((index & 3) * 8)) & 0xff;
+	}
+
+	private int getIndex(long hash, long step, int i) {
+		return (int) Hash.index(hash, step, i, this.numCounters);
+	}
+}
@@ -1,25 +1,65 @@
 package project;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class BloomFilterOptimized implements BloomFilter {
 	private byte[] array;
+	private ByteBuffer mapped;		// read only bytes of a memory mapped file, copied to array on the first add
 	private int numHashFunctions;
 	private int arrayVirtualLength;
 	private static final int[] steps = {1, 2, 4, 8, 16, 32, 64, 128};
-	private final static double prob = 0.001;
+	private static final int maxLength = Integer.MAX_VALUE - 8;
+	private HashFunction hashFunction;
+	
+	public static BloomFilterOptimized withBits(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		return new BloomFilterOptimized(numBits, numHashFunctions, hashFunction);
+	}
+	
+	private BloomFilterOptimized(long numBits, int numHashFunctions, HashFunction hashFunction) {
+		if(numBits <= 0 || numHashFunctions <= 0) {
+			throw new IllegalArgumentException("Number of bits and hash functions must be positive");
+		}
+		if(numBits > maxLength) {
+			throw new IllegalArgumentException("Bloom filter can not have more than " + maxLength + " bits");
+		}
+		this.arrayVirtualLength = (int) numBits;
+		this.array = new byte[(arrayVirtualLength + 7) / 8];
+		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
+	}
+	
+	public BloomFilterOptimized(int size, int numHashFunctions, HashFunction hashFunction) {
+		this(BloomFilterSizing.numBits(size, numHashFunctions), numHashFunctions, hashFunction);
+	}
 	
 	public BloomFilterOptimized(int size, int numHashFunctions) {
-		this.arrayVirtualLength = calculateOptimalArraySize(size, numHashFunctions);
-		this.array = new byte[(int) Math.ceil(arrayVirtualLength/8)];
+		this(size, numHashFunctions, Hash.MURMUR3);
+	}
+	
+	public BloomFilterOptimized(int size, double falsePositiveProbability) {
+		this(BloomFilterSizing.optimalNumBits(size, falsePositiveProbability), BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability), Hash.MURMUR3);
+	}
+	
+	private BloomFilterOptimized(int arrayVirtualLength, int numHashFunctions, HashFunction hashFunction, ByteBuffer mapped) {
+		this.array = null;
+		this.mapped = mapped;
+		this.arrayVirtualLength = arrayVirtualLength;
 		this.numHashFunctions = numHashFunctions;
+		this.hashFunction = hashFunction;
 	}
 	
 	public void add(String content) {
 		int index, subIndex;
-		double aux;
+		int aux;
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		byte[] array = getArray();
 		for(int i=0;i<this.numHashFunctions;i++) {
-			aux = Math.abs(adjustToSize(Hash.hash(content + i)));
-			index = (int) aux/8;
-			subIndex = (int) aux % 8;
+			aux = (int) Hash.index(hash, step, i, this.arrayVirtualLength);
+			index = aux/8;
+			subIndex = aux % 8;
 			if(getBit(array[index], subIndex) == 0) {
 				array[index] = (byte) (array[index] + steps[subIndex]);
 			}
@@ -28,35 +68,100 @@ public class BloomFilterOptimized implements BloomFilter {
 	
 	public boolean contains(String content) {
 		int index, subIndex;
-		double aux;
+		int aux;
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
 		for(int i=0;i<this.numHashFunctions;i++) {
-			aux = Math.abs(adjustToSize(Hash.hash(content + i)));
-			index = (int) aux/8;
-			subIndex = (int) aux % 8;
-			if(getBit(array[index], subIndex) == 0) {
+			aux = (int) Hash.index(hash, step, i, this.arrayVirtualLength);
+			index = aux/8;
+			subIndex = aux % 8;
+			if(getBit(getByte(index), subIndex) == 0) {
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	public void union(BloomFilterOptimized other) {
+		checkCompatible(other);
+		byte[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			array[i] |= other.getByte(i);
+		}
+	}
+	
+	public void intersect(BloomFilterOptimized other) {
+		checkCompatible(other);
+		byte[] array = getArray();
+		for(int i=0;i<array.length;i++) {
+			array[i] &= other.getByte(i);
+		}
+	}
+	
+	public double getFalsePositiveProbability() {
+		long count = 0;
+		for(int i=0;i<length();i++) {
+			count += Integer.bitCount(getByte(i) & 0xFF);
+		}
+		return BloomFilterSizing.estimatedFalsePositiveProbability(count, this.arrayVirtualLength, this.numHashFunctions);
+	}
+	
+	public boolean isMapped() {
+		return this.array == null;
+	}
+	
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.optimized);
+		out.writeInt(this.arrayVirtualLength);
+		out.writeInt(this.numHashFunctions);
+		for(int i=0;i<length();i++) {
+			out.writeByte(getByte(i));
+		}
+	}
+	
+	static BloomFilterOptimized read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int arrayVirtualLength = buffer.getInt();
+		int numHashFunctions = buffer.getInt();
+		if(arrayVirtualLength <= 0 || arrayVirtualLength > maxLength || numHashFunctions <= 0) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		return new BloomFilterOptimized(arrayVirtualLength, numHashFunctions, hashFunction, BloomFilterStorage.bytes(buffer, (arrayVirtualLength + 7) / 8));
+	}
+	
 	public String toString() {		
-		return "Bloom filter size: " + this.array.length + ". Bloom Filter virtual length: " + this.arrayVirtualLength;
+		return (isMapped() ? "Memory mapped bloom" : "Bloom") + " filter size: " + length() + ". Bloom Filter virtual length: " + this.arrayVirtualLength;
 	}
 	
-	private static int getBit(byte b, int position)
-	{
-	   return (b >> position) & 1;
+	private void checkCompatible(BloomFilterOptimized other) {
+		if(this.arrayVirtualLength != other.arrayVirtualLength || this.numHashFunctions != other.numHashFunctions || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same length, hash functions and hash function can be merged");
+		}
+	}
+	
+	private byte getByte(int index) {
+		if(this.array == null) {
+			return this.mapped.get(index);
+		}
+		return this.array[index];
 	}
 	
-	private double adjustToSize(int value) {
-		return value % this.arrayVirtualLength;
+	private int length() {
+		return (this.arrayVirtualLength + 7) / 8;
 	}
 	
-	private int calculateOptimalArraySize(int size, int numHashFunctions) {
-		
-		//return (int) Math.ceil((size * Math.log(this.prob)) / Math.log(1 / Math.pow(2, Math.log(2))));
-		return (int) Math.ceil(((size*numHashFunctions)/Math.log(2))) * 8;		// k = (n*ln(2))/m   <=>   n = (k*m)/ln(2)
+	private byte[] getArray() {
+		if(this.array == null) {
+			// copy on write, the mapped file is never changed
+			this.array = new byte[this.mapped.limit()];
+			this.mapped.duplicate().get(this.array);
+			this.mapped = null;
+		}
+		return this.array;
+	}
+	
+	private static int getBit(byte b, int position)
+	{
+	   return (b >> position) & 1;
 	}
 }
 
@@ -0,0 +1,75 @@
+package project;
+
+public class BloomFilterSizing {
+
+	/*
+	 * 		n values, m bits, k hash functions, p false positive probability
+	 * 		p = (1 - e^(-k*n/m))^k, smallest for k = (m/n)*ln(2), where m = -n*ln(p)/ln(2)^2
+	 */
+
+	public static long optimalNumBits(long n, double p) {
+		checkArguments(n, p);
+		return Math.max(1, (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+	}
+
+	public static int optimalNumHashFunctions(long n, long m) {
+		return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+	}
+
+	public static int optimalNumHashFunctions(double p) {
+		return Math.max(1, (int) Math.round(-Math.log(p) / Math.log(2)));		// k = log2(1/p)
+	}
+
+	// bits needed to use k hash functions optimally with n values
+	public static long numBits(long n, int k) {
+		if(n <= 0 || k <= 0) {
+			throw new IllegalArgumentException("Number of values and hash functions must be positive");
+		}
+		return (long) Math.ceil(n * k / Math.log(2));		// k = (m/n)*ln(2)   <=>   m = (k*n)/ln(2)
+	}
+
+	public static double falsePositiveProbability(long n, long m, int k) {
+		return Math.pow(1 - Math.exp(-(double) k * n / m), k);
+	}
+
+	/*
+	 * 		in a blocked filter the number of values of a block follows a poisson distribution with mean n*blockBits/m,
+	 * 		blocks with more values than the mean have many more false positives than the others
+	 */
+	public static double blockedFalsePositiveProbability(long n, long m, int k, int blockBits) {
+		double mean = (double) n * blockBits / m;
+		double p = 0;
+		double logProbability = -mean;		// log of the poisson probability of i values
+		long last = (long) (mean + 10 * Math.sqrt(mean) + 10);
+		for(long i=0;i<=last;i++) {
+			if(i > 0) {
+				logProbability += Math.log(mean) - Math.log(i);
+			}
+			p += Math.exp(logProbability) * falsePositiveProbability(i, blockBits, k);
+		}
+		return p;
+	}
+
+	// grows the plain filter size until the blocked filter reaches p
+	public static long optimalBlockedNumBits(long n, double p, int k, int blockBits) {
+		long m = optimalNumBits(n, p);
+		for(int i=0;i<100 && blockedFalsePositiveProbability(n, m, k, blockBits) > p;i++) {
+			m += m / 20;
+		}
+		return m;
+	}
+
+	// estimate from the filter itself, a value is a false positive when its k positions are all set
+	public static double estimatedFalsePositiveProbability(long setPositions, long positions, int k) {
+		return Math.pow((double) setPositions / positions, k);
+	}
+
+	private static void checkArguments(long n, double p) {
+		if(n <= 0) {
+			throw new IllegalArgumentException("Number of values must be positive");
+		}
+		if(p <= 0 || p >= 1) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+	}
+}
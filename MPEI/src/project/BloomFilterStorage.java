@@ -0,0 +1,121 @@
+package project;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class BloomFilterStorage {
+	private static final int fileMagic = 0x424C4F4D;		// "BLOM"
+	private static final int fileVersion = 2;		// 2: cuckoo filters saved with their stages
+	static final int bitSet = 1;
+	static final int blocked = 2;
+	static final int optimized = 3;
+	static final int incremental = 4;
+	static final int counting = 5;
+	static final int scalable = 6;
+	static final int cuckoo = 7;
+	static final int sharded = 8;
+	// a file is mapped as one buffer, so the bits or counters of a filter take at most this many bytes
+	static final int maxDataBytes = Integer.MAX_VALUE - 64;
+
+	/*
+	 * 		file: | magic | version | type | parameters of the filter | bits or counters |
+	 * 		the concurrent filters are saved with the layout of BloomFilterBitSet and BloomFilterIncremental
+	 * 		the hash function is not saved, the filter must be loaded with the one it was built with
+	 * 		files are at most 2GB (about 17 billion bits), the filters can not be built bigger than maxDataBytes
+	 * 		and the scalable and sharded filters, made of several of them, are checked when saved
+	 */
+
+	public static void save(BloomFilter filter, File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(fileMagic);
+			out.writeInt(fileVersion);
+			filter.write(out);
+		}
+		finally {
+			out.close();
+		}
+		// size() stops counting at Integer.MAX_VALUE
+		if(out.size() == Integer.MAX_VALUE) {
+			file.delete();
+			throw new IOException("Bloom filter is too big to be saved in one file");
+		}
+	}
+
+	// the bits stay in the read only mapping (shared with other processes) until something is added
+	public static BloomFilter load(File file, HashFunction hashFunction) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Bloom filter file \"" + file.getAbsolutePath() + "\" is too big to be mapped");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.remaining() < 12 || buffer.getInt() != fileMagic) {
+				throw new IOException("\"" + file.getAbsolutePath() + "\" is not a bloom filter file");
+			}
+			int version = buffer.getInt();
+			if(version != fileVersion) {
+				throw new IOException("Unsupported bloom filter file version " + version);
+			}
+			BloomFilter filter = read(buffer, hashFunction);
+			if(buffer.hasRemaining()) {
+				throw new IOException("Bloom filter file \"" + file.getAbsolutePath() + "\" has " + buffer.remaining() + " unexpected bytes");
+			}
+			return filter;
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	public static BloomFilter load(File file) throws IOException {
+		return load(file, Hash.MURMUR3);
+	}
+
+	static BloomFilter read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int type = buffer.getInt();
+		switch(type) {
+			case bitSet:
+				return BloomFilterBitSet.read(buffer, hashFunction);
+			case blocked:
+				return BloomFilterBlocked.read(buffer, hashFunction);
+			case optimized:
+				return BloomFilterOptimized.read(buffer, hashFunction);
+			case incremental:
+				return BloomFilterIncremental.read(buffer, hashFunction);
+			case counting:
+				return BloomFilterCounting.read(buffer, hashFunction);
+			case scalable:
+				return ScalableBloomFilter.read(buffer, hashFunction);
+			case cuckoo:
+				return CuckooFilter.read(buffer, hashFunction);
+			case sharded:
+				return ShardedBloomFilter.read(buffer, hashFunction);
+			default:
+				throw new IOException("Unknown bloom filter type " + type);
+		}
+	}
+
+	// next count longs of the buffer, without copying them
+	static LongBuffer longs(ByteBuffer buffer, int count) throws IOException {
+		ByteBuffer aux = bytes(buffer, (long) count * 8);
+		return aux.asLongBuffer();
+	}
+
+	static ByteBuffer bytes(ByteBuffer buffer, long count) throws IOException {
+		if(count < 0 || count > buffer.remaining()) {
+			throw new IOException("Bloom filter file is truncated");
+		}
+		ByteBuffer aux = buffer.slice();
+		aux.limit((int) count);
+		buffer.position(buffer.position() + (int) count);
+		return aux;
+	}
+}
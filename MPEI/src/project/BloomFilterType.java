@@ -0,0 +1,8 @@
+package project;
+
+public enum BloomFilterType {
+	BLOCKED,		// fixed size, one cache line per value
+	SCALABLE,		// grows with the number of values, keeps the false positive probability
+	CUCKOO,			// fingerprints in buckets, values can be removed
+	SHARDED			// one filter per hash prefix, the shards of different workers can be merged
+}
@@ -0,0 +1,195 @@
+package project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+public class CountMinSketch {
+	private int[] counters;
+	private int width;
+	private int depth;
+	private boolean conservativeUpdate;
+	private long total;
+	private HashFunction hashFunction;
+	private int heavyHittersCapacity;
+	private HashMap<String, Integer> heavyHitters;		// candidates and their estimate when last updated
+	private TreeSet<String> heavyHittersRanking;		// the same candidates, smallest estimate first
+
+	/*
+	 * 		depth rows of width counters, row r of a value uses index h1 + r*h2 (mod width)
+	 * 		estimate = smallest of its depth counters, overestimates by at most epsilon*total with probability 1-delta
+	 */
+
+	public CountMinSketch(int width, int depth, boolean conservativeUpdate, int heavyHittersCapacity, HashFunction hashFunction) {
+		if(width <= 0 || depth <= 0) {
+			throw new IllegalArgumentException("Width and depth must be positive");
+		}
+		if((long) width * depth > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Count-Min sketch is too big");
+		}
+		this.width = width;
+		this.depth = depth;
+		this.counters = new int[width * depth];
+		this.conservativeUpdate = conservativeUpdate;
+		this.total = 0;
+		this.hashFunction = hashFunction;
+		this.heavyHittersCapacity = heavyHittersCapacity;
+		this.heavyHitters = new HashMap<String, Integer>();
+		this.heavyHittersRanking = new TreeSet<String>(new Comparator<String>() {
+			public int compare(String s1, String s2) {
+				int cmp = Integer.compare(heavyHitters.get(s1), heavyHitters.get(s2));
+				return cmp != 0 ? cmp : s1.compareTo(s2);
+			}
+		});
+	}
+
+	public CountMinSketch(double epsilon, double delta, boolean conservativeUpdate, int heavyHittersCapacity) {
+		this((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)), conservativeUpdate, heavyHittersCapacity, Hash.MURMUR3);
+	}
+
+	public CountMinSketch(double epsilon, double delta) {
+		this(epsilon, delta, true, 100);
+	}
+
+	public void add(String content) {
+		add(content, 1);
+	}
+
+	// a negative count removes a value added before, only without conservative update (it does not raise every counter)
+	public void add(String content, int count) {
+		if(count < 0 && this.conservativeUpdate) {
+			throw new IllegalStateException("Count-Min sketch with conservative update can not remove values");
+		}
+		long hash = this.hashFunction.hash64(content);
+		long step = Hash.secondHash(hash);
+		int estimate;
+		if(this.conservativeUpdate) {
+			// only the counters below the new estimate are raised, which keeps the overestimation lower
+			estimate = estimate(hash) + count;
+			for(int r=0;r<this.depth;r++) {
+				int index = getIndex(hash, step, r);
+				if(this.counters[index] < estimate) {
+					this.counters[index] = estimate;
+				}
+			}
+		}
+		else {
+			estimate = Integer.MAX_VALUE;
+			for(int r=0;r<this.depth;r++) {
+				int index = getIndex(hash, step, r);
+				this.counters[index] += count;
+				estimate = Math.min(estimate, this.counters[index]);
+			}
+		}
+		this.total += count;
+		updateHeavyHitters(content, estimate);
+	}
+
+	// counts of both sketches, for sketches filled by different workers
+	public void merge(CountMinSketch other) {
+		checkCompatible(other);
+		for(int i=0;i<this.counters.length;i++) {
+			this.counters[i] = (int) Math.min((long) this.counters[i] + other.counters[i], Integer.MAX_VALUE);
+		}
+		this.total += other.total;
+		// the candidates of both are estimated again and only the most frequent ones are kept
+		HashSet<String> candidates = new HashSet<String>(this.heavyHitters.keySet());
+		candidates.addAll(other.heavyHitters.keySet());
+		this.heavyHitters.clear();
+		this.heavyHittersRanking.clear();
+		for(String candidate: candidates) {
+			updateHeavyHitters(candidate, estimate(candidate));
+		}
+	}
+
+	public int estimate(String content) {
+		return estimate(this.hashFunction.hash64(content));
+	}
+
+	// most frequent values, from the candidates kept while adding
+	public List<String> getHeavyHitters(int k) {
+		List<String> list = new ArrayList<String>(this.heavyHitters.keySet());
+		HashMap<String, Integer> estimates = new HashMap<String, Integer>();
+		for(String str: list) {
+			estimates.put(str, estimate(str));
+		}
+		Collections.sort(list, new Comparator<String>() {
+			public int compare(String s1, String s2) {
+				int cmp = Integer.compare(estimates.get(s2), estimates.get(s1));
+				return cmp != 0 ? cmp : s1.compareTo(s2);
+			}
+		});
+		return list.subList(0, Math.min(k, list.size()));
+	}
+
+	public long getTotal() {
+		return this.total;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getDepth() {
+		return this.depth;
+	}
+
+	public String toString() {
+		return "Count-Min sketch with " + this.depth + " rows of " + this.width + " counters, " + this.total + " values added";
+	}
+
+	private int estimate(long hash) {
+		long step = Hash.secondHash(hash);
+		int min = Integer.MAX_VALUE;
+		for(int r=0;r<this.depth;r++) {
+			min = Math.min(min, this.counters[getIndex(hash, step, r)]);
+		}
+		return min;
+	}
+
+	private int getIndex(long hash, long step, int row) {
+		return row * this.width + (int) Hash.index(hash, step, row, this.width);
+	}
+
+	private void updateHeavyHitters(String content, int estimate) {
+		if(this.heavyHittersCapacity <= 0) {
+			return;
+		}
+		if(this.heavyHitters.containsKey(content) || this.heavyHitters.size() < this.heavyHittersCapacity) {
+			setHeavyHitter(content, estimate);
+			return;
+		}
+		// the smallest saved estimates may be old (other values share their counters), they are estimated again before one is dropped
+		String smallest = this.heavyHittersRanking.first();
+		int smallestEstimate = estimate(smallest);
+		while(smallestEstimate != this.heavyHitters.get(smallest)) {
+			setHeavyHitter(smallest, smallestEstimate);
+			smallest = this.heavyHittersRanking.first();
+			smallestEstimate = estimate(smallest);
+		}
+		if(estimate > smallestEstimate) {
+			this.heavyHittersRanking.remove(smallest);
+			this.heavyHitters.remove(smallest);
+			setHeavyHitter(content, estimate);
+		}
+	}
+
+	// the ranking is ordered by the saved estimates, so a candidate leaves it before its estimate changes
+	private void setHeavyHitter(String content, int estimate) {
+		if(this.heavyHitters.containsKey(content)) {
+			this.heavyHittersRanking.remove(content);
+		}
+		this.heavyHitters.put(content, estimate);
+		this.heavyHittersRanking.add(content);
+	}
+
+	void checkCompatible(CountMinSketch other) {
+		if(this.width != other.width || this.depth != other.depth || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only sketches with the same width, depth and hash function can be merged");
+		}
+	}
+}
@@ -0,0 +1,378 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Random;
+
+public class CuckooFilter implements BloomFilter {
+	private static final int slotsPerBucket = 4;
+	private static final int maxBuckets = 1 << 27;		// 8 bytes per bucket, a stage takes at most 1GB
+	private static final int maxKicks = 500;
+	private static final double loadFactor = 0.95;		// 4 slot buckets stay insertable up to ~95% occupancy
+	private long[] buckets;
+	private LongBuffer mapped;		// read only buckets of a memory mapped file, copied to buckets on the first change
+	private int mask;
+	private int size;
+	private int victim;		// fingerprint that found no place on the last add, 0 if none
+	private int victimBucket;
+	private HashFunction hashFunction;
+	private Random random;
+	private CuckooFilter next;		// stage with twice the buckets, created when this one is full
+
+	/*
+	 * 		each bucket is a long with 4 fingerprints of 16 bits, 0 is an empty slot
+	 * 		a value can be in bucket i1 = hash & mask or i2 = i1 ^ (mix(fingerprint) & mask),
+	 * 		i2 only depends on i1 and the fingerprint so a fingerprint can move between them without the value
+	 * 		false positive probability ~ 2*4/2^16 = 0.012% per stage
+	 * 		every add stores a fingerprint, so values with the same fingerprint and buckets can be removed one by one
+	 * 		(a value added twice is stored twice and has to be removed twice)
+	 * 		the hash of a fingerprint is not kept, so a full filter can not be moved to more buckets: it gets a next
+	 * 		stage with twice the buckets for the new values, lookups and removals go through every stage
+	 */
+
+	public CuckooFilter(int size, HashFunction hashFunction) {
+		this(numBuckets(size), 0, 0, 0, hashFunction, null);
+	}
+
+	public CuckooFilter(int size) {
+		this(size, Hash.MURMUR3);
+	}
+
+	// mapped is null for a new empty stage
+	private CuckooFilter(int numBuckets, int size, int victim, int victimBucket, HashFunction hashFunction, LongBuffer mapped) {
+		this.buckets = mapped == null ? new long[numBuckets] : null;
+		this.mapped = mapped;
+		this.mask = numBuckets - 1;
+		this.size = size;
+		this.victim = victim;
+		this.victimBucket = victimBucket;
+		this.hashFunction = hashFunction;
+		this.random = new Random(numBuckets);
+	}
+
+	private static int numBuckets(int size) {
+		if(size <= 0) {
+			throw new IllegalArgumentException("Size must be positive");
+		}
+		long needed = (long) Math.ceil(size / (slotsPerBucket * loadFactor));
+		if(needed > maxBuckets) {
+			throw new IllegalArgumentException("Cuckoo filter can not hold more than " + (long) (maxBuckets * slotsPerBucket * loadFactor) + " values");
+		}
+		int numBuckets = Integer.highestOneBit((int) Math.max(needed, 1));
+		if(numBuckets < needed) {
+			numBuckets <<= 1;
+		}
+		return numBuckets;
+	}
+
+	// the fingerprint goes to the last stage, a new one is added when it is full
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		CuckooFilter stage = getLastStage();
+		if(stage.victim != 0) {
+			stage.next = new CuckooFilter(Math.min(stage.getStageBuckets() * 2, maxBuckets), 0, 0, 0, this.hashFunction, null);
+			stage = stage.next;
+		}
+		stage.addFingerprint((int) hash & stage.mask, fingerprint(hash));
+	}
+
+	public boolean contains(String content) {
+		long hash = this.hashFunction.hash64(content);
+		int fingerprint = fingerprint(hash);
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			int i1 = (int) hash & stage.mask;
+			int i2 = stage.alternate(i1, fingerprint);
+			if(stage.hasFingerprint(i1, fingerprint) || stage.hasFingerprint(i2, fingerprint) || stage.isVictim(i1, i2, fingerprint)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// only values that were added can be removed, otherwise a value with the same fingerprint would be lost
+	public boolean remove(String content) {
+		long hash = this.hashFunction.hash64(content);
+		int fingerprint = fingerprint(hash);
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			int i1 = (int) hash & stage.mask;
+			if(stage.remove(i1, fingerprint, stage.alternate(i1, fingerprint))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the stages of the other filter are copied after the ones of this filter, a value in both is then stored twice
+	public void union(CuckooFilter other) {
+		checkUnion(other);
+		CuckooFilter last = getLastStage();
+		for(CuckooFilter otherStage=other;otherStage!=null;otherStage=otherStage.next) {
+			last.next = new CuckooFilter(otherStage.getStageBuckets(), otherStage.size, otherStage.victim, otherStage.victimBucket, this.hashFunction, null);
+			last = last.next;
+			for(int i=0;i<last.getStageBuckets();i++) {
+				last.buckets[i] = otherStage.getBucket(i);
+			}
+		}
+	}
+
+	// fingerprints that are not in the same stage of the other filter are removed, both must have the same stages
+	public void intersect(CuckooFilter other) {
+		checkCompatible(other);
+		CuckooFilter otherStage = other;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			for(int index=0;index<stage.getStageBuckets();index++) {
+				for(int slot=0;slot<slotsPerBucket;slot++) {
+					int fingerprint = stage.getSlot(index, slot);
+					if(fingerprint != 0 && !otherStage.hasValue(index, fingerprint)) {
+						stage.setSlot(index, slot, 0);
+						stage.size--;
+					}
+				}
+			}
+			if(stage.victim != 0 && !otherStage.hasValue(stage.victimBucket, stage.victim)) {
+				stage.victim = 0;
+				stage.size--;
+			}
+			otherStage = otherStage.next;
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			size += stage.size;
+		}
+		return size;
+	}
+
+	public int getNumBuckets() {
+		int numBuckets = 0;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			numBuckets += stage.getStageBuckets();
+		}
+		return numBuckets;
+	}
+
+	public int getNumStages() {
+		int stages = 0;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			stages++;
+		}
+		return stages;
+	}
+
+	public double getLoad() {
+		return (double) size() / ((long) getNumBuckets() * slotsPerBucket);
+	}
+
+	// a value is compared with the fingerprints of its 2 buckets in every stage, each one matches with probability 1/(2^16-1)
+	public double getFalsePositiveProbability() {
+		double none = 1;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			none *= Math.pow(1 - 1.0 / 0xFFFF, 2.0 * stage.size / stage.getStageBuckets());
+		}
+		return 1 - none;
+	}
+
+	// true while a stage still reads its buckets from the file
+	public boolean isMapped() {
+		return this.buckets == null || (this.next != null && this.next.isMapped());
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.cuckoo);
+		out.writeInt(getNumStages());
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			out.writeInt(stage.getStageBuckets());
+			out.writeInt(stage.size);
+			out.writeInt(stage.victim);
+			out.writeInt(stage.victimBucket);
+			for(int i=0;i<stage.getStageBuckets();i++) {
+				out.writeLong(stage.getBucket(i));
+			}
+		}
+	}
+
+	static CuckooFilter read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int numStages = buffer.getInt();
+		if(numStages <= 0) {
+			throw new IOException("Invalid cuckoo filter parameters");
+		}
+		CuckooFilter first = null, last = null;
+		for(int i=0;i<numStages;i++) {
+			int numBuckets = buffer.getInt();
+			int size = buffer.getInt();
+			int victim = buffer.getInt();
+			int victimBucket = buffer.getInt();
+			if(numBuckets <= 0 || numBuckets > maxBuckets || Integer.bitCount(numBuckets) != 1 || size < 0 || victimBucket < 0 || victimBucket >= numBuckets) {
+				throw new IOException("Invalid cuckoo filter parameters");
+			}
+			CuckooFilter stage = new CuckooFilter(numBuckets, size, victim, victimBucket, hashFunction, BloomFilterStorage.longs(buffer, numBuckets));
+			if(first == null) {
+				first = stage;
+			}
+			else {
+				last.next = stage;
+			}
+			last = stage;
+		}
+		return first;
+	}
+
+	public String toString() {
+		return (isMapped() ? "Memory mapped cuckoo" : "Cuckoo") + " filter size: " + ((long) getNumBuckets() * 8) + " bytes in " + getNumStages() + " stages. Values: " + size();
+	}
+
+	private CuckooFilter getLastStage() {
+		CuckooFilter stage = this;
+		while(stage.next != null) {
+			stage = stage.next;
+		}
+		return stage;
+	}
+
+	private int getStageBuckets() {
+		return this.mask + 1;
+	}
+
+	private boolean remove(int i1, int fingerprint, int i2) {
+		if(isVictim(i1, i2, fingerprint)) {
+			this.victim = 0;
+			this.size--;
+			return true;
+		}
+		if(delete(i1, fingerprint) || delete(i2, fingerprint)) {
+			this.size--;
+			// there is room again for the fingerprint kept aside
+			if(this.victim != 0) {
+				int aux = this.victim;
+				this.victim = 0;
+				this.size--;
+				addFingerprint(this.victimBucket, aux);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void addFingerprint(int index, int fingerprint) {
+		if(insert(index, fingerprint) || insert(alternate(index, fingerprint), fingerprint)) {
+			this.size++;
+			return;
+		}
+		// kicks random fingerprints to their other bucket until one finds an empty slot
+		for(int n=0;n<maxKicks;n++) {
+			int slot = this.random.nextInt(slotsPerBucket);
+			int kicked = getSlot(index, slot);
+			setSlot(index, slot, fingerprint);
+			fingerprint = kicked;
+			index = alternate(index, fingerprint);
+			if(insert(index, fingerprint)) {
+				this.size++;
+				return;
+			}
+		}
+		// the last kicked fingerprint is kept aside so nothing is lost, the next add goes to a new stage
+		this.victim = fingerprint;
+		this.victimBucket = index;
+		this.size++;
+	}
+
+	private boolean hasValue(int index, int fingerprint) {
+		int alternate = alternate(index, fingerprint);
+		return hasFingerprint(index, fingerprint) || hasFingerprint(alternate, fingerprint) || isVictim(index, alternate, fingerprint);
+	}
+
+	void checkUnion(CuckooFilter other) {
+		if(this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same hash function can be merged");
+		}
+	}
+
+	private void checkCompatible(CuckooFilter other) {
+		if(this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same stages and hash function can be merged");
+		}
+		CuckooFilter otherStage = other;
+		for(CuckooFilter stage=this;stage!=null;stage=stage.next) {
+			if(otherStage == null || stage.mask != otherStage.mask) {
+				throw new IllegalArgumentException("Only filters with the same stages and hash function can be merged");
+			}
+			otherStage = otherStage.next;
+		}
+		if(otherStage != null) {
+			throw new IllegalArgumentException("Only filters with the same stages and hash function can be merged");
+		}
+	}
+
+	private int fingerprint(long hash) {
+		int fingerprint = (int) (hash >>> 48);		// bits not used by the bucket index
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+
+	private int alternate(int index, int fingerprint) {
+		return (index ^ (int) Hash.fmix64(fingerprint)) & this.mask;
+	}
+
+	private boolean isVictim(int i1, int i2, int fingerprint) {
+		return this.victim == fingerprint && (this.victimBucket == i1 || this.victimBucket == i2);
+	}
+
+	private boolean hasFingerprint(int index, int fingerprint) {
+		for(int slot=0;slot<slotsPerBucket;slot++) {
+			if(getSlot(index, slot) == fingerprint) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean insert(int index, int fingerprint) {
+		for(int slot=0;slot<slotsPerBucket;slot++) {
+			if(getSlot(index, slot) == 0) {
+				setSlot(index, slot, fingerprint);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean delete(int index, int fingerprint) {
+		for(int slot=0;slot<slotsPerBucket;slot++) {
+			if(getSlot(index, slot) == fingerprint) {
+				setSlot(index, slot, 0);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getSlot(int index, int slot) {
+		return (int) (getBucket(index) >>> (slot * 16)) & 0xFFFF;
+	}
+
+	private void setSlot(int index, int slot, int fingerprint) {
+		int shift = slot * 16;
+		long[] buckets = getBuckets();
+		buckets[index] = (buckets[index] & ~(0xFFFFL << shift)) | ((long) fingerprint << shift);
+	}
+
+	private long getBucket(int index) {
+		if(this.buckets == null) {
+			return this.mapped.get(index);
+		}
+		return this.buckets[index];
+	}
+
+	private long[] getBuckets() {
+		if(this.buckets == null) {
+			// copy on write, the mapped file is never changed
+			this.buckets = new long[getStageBuckets()];
+			this.mapped.duplicate().get(this.buckets);
+			this.mapped = null;
+		}
+		return this.buckets;
+	}
+}
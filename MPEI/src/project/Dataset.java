@@ -1,4 +1,5 @@
 package project;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -8,44 +9,103 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.MappedCSVParser;
+import org.apache.commons.csv.ParallelCSVParser;
 
 public class Dataset {
 	private ArrayList<Publication> dataset;
 	private int maxValues;
 	private int errors;
 	private int excluded;
-	private BloomFilterOptimized titlesBloomFilter;
-	private BloomFilterOptimized authorsBloomFilter;
-	private BloomFilterIncremental titlesBloomFilterIncremental;
+	private BloomFilter titlesBloomFilter;
+	private BloomFilter authorsBloomFilter;
+	private BloomFilterCounting titlesBloomFilterIncremental;
 	private boolean onlyTrustTrustedEntities;
+	private File signaturesCache;
+	private MinHash newsIndex;
+	private CountMinSketch titlesFrequency;
+	private CountMinSketch authorsFrequency;
+	private CountMinSketch publicatorsFrequency;
+	private double falsePositiveProbability;
+	private static final double defaultFalsePositiveProbability = 0.001;
 	private static final String[] trustedEntities = {"New York Times", "Breitbart", "CNN", "Business Insider", "Atlantic", "Fox News", "Talking Points Memo", "Buzzfeed News", "National Review", "Guardian", "New York Post", "NPR", "Reuters", "Vox", "Washington Post"};   
 	private static final String[] trustedEntitiesMark = {" - The New York Times", ",Atlantic", ",Guardian", " - Breitbart"}; // etc
 	
-	public Dataset(int numValuesAprox, boolean onlyTrustTrustedEntities) {
+	// falsePositiveProbability is the target of the bloom filters while they hold at most numValuesAprox values
+	public Dataset(int numValuesAprox, double falsePositiveProbability, boolean onlyTrustTrustedEntities, BloomFilterType titlesFilterType, BloomFilterType authorsFilterType) {
+		if(falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+		this.falsePositiveProbability = falsePositiveProbability;
 		this.onlyTrustTrustedEntities = onlyTrustTrustedEntities;
 		dataset = new ArrayList<Publication>();
 		this.maxValues = 0;
 		this.excluded = 0;
 		this.errors = 0;
-		this.titlesBloomFilter = new BloomFilterOptimized(numValuesAprox, 4);
-		this.authorsBloomFilter = new BloomFilterOptimized(numValuesAprox, 4);
-		this.titlesBloomFilterIncremental = new BloomFilterIncremental(numValuesAprox, 4);
+		this.titlesBloomFilter = createBloomFilter(titlesFilterType, numValuesAprox, falsePositiveProbability);
+		this.authorsBloomFilter = createBloomFilter(authorsFilterType, numValuesAprox, falsePositiveProbability);
+		this.titlesBloomFilterIncremental = new BloomFilterCounting(numValuesAprox, falsePositiveProbability);
+		// counts overestimated by at most 0.01% of the publications added, with 99.9% probability
+		// without conservative update, so removed publications can be taken out of the counts
+		this.titlesFrequency = new CountMinSketch(0.0001, 0.001, false, 100);
+		this.authorsFrequency = new CountMinSketch(0.0001, 0.001, false, 100);
+		this.publicatorsFrequency = new CountMinSketch(0.0001, 0.001, false, 100);
+	}
+	
+	public Dataset(int numValuesAprox, boolean onlyTrustTrustedEntities, BloomFilterType titlesFilterType, BloomFilterType authorsFilterType) {
+		this(numValuesAprox, defaultFalsePositiveProbability, onlyTrustTrustedEntities, titlesFilterType, authorsFilterType);
+	}
+	
+	public Dataset(int numValuesAprox, double falsePositiveProbability, boolean onlyTrustTrustedEntities, BloomFilterType filterType) {
+		this(numValuesAprox, falsePositiveProbability, onlyTrustTrustedEntities, filterType, filterType);
+	}
+	
+	public Dataset(int numValuesAprox, boolean onlyTrustTrustedEntities, BloomFilterType filterType) {
+		this(numValuesAprox, defaultFalsePositiveProbability, onlyTrustTrustedEntities, filterType);
+	}
+	
+	public Dataset(int numValuesAprox, boolean onlyTrustTrustedEntities) {
+		this(numValuesAprox, onlyTrustTrustedEntities, BloomFilterType.BLOCKED);
 	}
 	
 	public Dataset(int numValuesAprox) {
 		this(numValuesAprox, false);
 	}
 	
+	public Dataset(int numValuesAprox, double falsePositiveProbability) {
+		this(numValuesAprox, falsePositiveProbability, false, BloomFilterType.BLOCKED);
+	}
+	
+	private static BloomFilter createBloomFilter(BloomFilterType type, int numValuesAprox, double falsePositiveProbability) {
+		switch(type) {
+			case SCALABLE:
+				return new ScalableBloomFilter(numValuesAprox, falsePositiveProbability);		// numValuesAprox is only the first step
+			case CUCKOO:
+				// grows by stages when full, the 16 bit fingerprints set its false positive probability
+				return new CuckooFilter(numValuesAprox);
+			case SHARDED:
+				return new ShardedBloomFilter(16, numValuesAprox, falsePositiveProbability);
+			case BLOCKED:
+			default:
+				return new BloomFilterBlocked(numValuesAprox, falsePositiveProbability);
+		}
+	}
+	
 	public void showSimilarNews(double threshHold, int permutations) {
 		showSimilarNews(threshHold, permutations, 10, true);
 	}
@@ -87,9 +147,7 @@ public class Dataset {
 			titles.add(p.getTitle());
 		}
 		
-		MinHash minHash = new MinHash(permutations);
-		minHash.setThreshHold(threshHold);
-		minHash.add(news);
+		MinHash minHash = prepareMinHash(news, permutations, 3, threshHold, "sametitle");
 		List<LinkedList<Integer>> resp = minHash.getSimilaresWithConstantField(news, titles);
 		registLog(resp, news, "news.txt");
 		registLog(resp, titles, "titles.txt");
@@ -139,11 +197,9 @@ public class Dataset {
 	
 	public void showSimilarNews(double threshHold, int permutations, int shingleLen, boolean showProgress) {
 		System.out.println("Preparing shingles for Min Hashing...");
-		MinHash minHash = new MinHash(permutations, shingleLen);
-		minHash.setThreshHold(threshHold);
 		long start = System.currentTimeMillis();
 		List<String> news = getPublicationsContent();
-		minHash.add(news);
+		MinHash minHash = prepareMinHash(news, permutations, shingleLen, threshHold, "news");
 		long durationMiliseconds = System.currentTimeMillis() - start;
 		float durationSeconds = durationMiliseconds/ (float) 1000;
 		System.out.printf("Min Hash preparation finished in %.3f seconds\n",durationSeconds);
@@ -164,6 +220,23 @@ public class Dataset {
 		System.out.printf("Min Hash finished in %.3f seconds, %d combinations found and %d news are at least %.2f similar\n",durationSeconds, list.size(), count, threshHold);
 	}
 	
+	// publications most similar to the given content, the ids are positions in getDataset()
+	public List<SimilarityMatch> findSimilarNews(String content, int k) {
+		if(this.newsIndex == null) {
+			this.newsIndex = new MinHash(100, 10);
+			this.newsIndex.setParallelism(Runtime.getRuntime().availableProcessors());
+		}
+		// only the publications added since the last query are hashed
+		if(this.newsIndex.size() < this.dataset.size()) {
+			List<String> news = new ArrayList<String>();
+			for(int i=this.newsIndex.size();i<this.dataset.size();i++) {
+				news.add(this.dataset.get(i).getContent());
+			}
+			this.newsIndex.add(news);
+		}
+		return this.newsIndex.query(content, k);
+	}
+	
 	private int getLength() {
 		int len = this.dataset.size();
 		if(this.maxValues != 0) {
@@ -188,11 +261,9 @@ public class Dataset {
 	
 	public void showSimilarTitles(boolean acceptRepetition, double threshHold, int permutations, boolean showProgress) throws IOException {
 		System.out.println("Preparing for Min Hashing...");
-		MinHash minHash = new MinHash(permutations);
-		minHash.setThreshHold(threshHold);
 		List<String> titles = getTitles(!acceptRepetition);
 		titles = purifyTitles(titles);
-		minHash.add(titles);
+		MinHash minHash = prepareMinHash(titles, permutations, 3, threshHold, "titles");
 		System.out.println("Calculating Min Hash...");
 		long start = System.currentTimeMillis();
 		List<LinkedList<Integer>> list = minHash.getSimilars(showProgress);
@@ -219,6 +290,92 @@ public class Dataset {
 		showSimilarTitles(threshHold, 100);
 	}
 	
+	// reuses the signatures saved for exactly the same values and parameters when a cache directory is set
+	// the file is named after the SHA-256 of the values, which is also checked against the one saved in the file
+	private MinHash prepareMinHash(List<String> values, int permutations, int shingleLen, double threshHold, String name) {
+		File cache = null;
+		byte[] digest = null;
+		if(this.signaturesCache != null) {
+			digest = digest(values);
+			cache = new File(this.signaturesCache, String.format("%s-%016x-%d-%d.mh", name, ByteBuffer.wrap(digest).getLong(), permutations, shingleLen));
+			if(cache.exists()) {
+				try {
+					MinHash minHash = MinHash.load(cache, digest);
+					if(minHash.size() == values.size()) {
+						minHash.setThreshHold(threshHold);
+						System.out.println("Signatures loaded from " + cache.getAbsolutePath());
+						return minHash;
+					}
+				} catch (IOException e) {
+					System.out.println("Error loading signatures, calculating them again: " + e.getMessage());
+				}
+			}
+		}
+		MinHash minHash = new MinHash(permutations, shingleLen);
+		minHash.setThreshHold(threshHold);
+		minHash.setParallelism(Runtime.getRuntime().availableProcessors());
+		minHash.add(values);
+		if(cache != null) {
+			try {
+				minHash.save(cache, digest);
+			} catch (IOException e) {
+				System.out.println("Error saving signatures: " + e.getMessage());
+			}
+		}
+		return minHash;
+	}
+	
+	// the length of each value is hashed too, so moving chars from one value to the next changes the digest
+	private static byte[] digest(List<String> values) {
+		MessageDigest sha;
+		try {
+			sha = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		ByteBuffer length = ByteBuffer.allocate(4);
+		for(String value: values) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			length.clear();
+			sha.update(length.putInt(bytes.length).array());
+			sha.update(bytes);
+		}
+		return sha.digest();
+	}
+	
+	public void setSignaturesCache(File directory) {
+		if(!directory.exists() && !directory.mkdirs()) {
+			System.out.println("Error creating signatures cache directory");
+			return;
+		}
+		this.signaturesCache = directory;
+	}
+	
+	// the filters can be reopened later with loadFilters instead of parsing the csv files again
+	public void saveFilters(File directory) throws IOException {
+		if(!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Error creating directory \"" + directory.getAbsolutePath() + "\"");
+		}
+		BloomFilterStorage.save(this.titlesBloomFilter, new File(directory, "titles.bf"));
+		BloomFilterStorage.save(this.authorsBloomFilter, new File(directory, "authors.bf"));
+		BloomFilterStorage.save(this.titlesBloomFilterIncremental, new File(directory, "titles-counting.bf"));
+	}
+	
+	/*
+	 * 		the files are mapped read only, processes that open the same files share their pages
+	 * 		only the filters are restored, not the publications: authorExits only confirms the authors of publications
+	 * 		in the dataset, authorMightExist also finds the saved ones (with false positives)
+	 */
+	public void loadFilters(File directory) throws IOException {
+		BloomFilter titlesCounting = BloomFilterStorage.load(new File(directory, "titles-counting.bf"));
+		if(!(titlesCounting instanceof BloomFilterCounting)) {
+			throw new IOException("\"titles-counting.bf\" is not a counting bloom filter");
+		}
+		this.titlesBloomFilter = BloomFilterStorage.load(new File(directory, "titles.bf"));
+		this.authorsBloomFilter = BloomFilterStorage.load(new File(directory, "authors.bf"));
+		this.titlesBloomFilterIncremental = (BloomFilterCounting) titlesCounting;
+	}
+	
 	private List<String> purifyTitles(List<String> list){
 		List<String> newList = new LinkedList<String>();
 		for(String str: list) {
@@ -274,7 +431,7 @@ public class Dataset {
 		System.out.println("Reading file...");
 		Reader in = new FileReader(fileName);
 		System.out.println("File has been successfully read\nParsing data...");
-		Iterable<CSVRecord> records = null;
+		CSVParser records = null;
 		try {
 			records = CSVFormat.RFC4180.withFirstRecordAsHeader().parse(in);
 		} catch (IOException e) {
@@ -282,84 +439,284 @@ public class Dataset {
 			e.printStackTrace();
 			System.exit(0);
 		}
-		for (CSVRecord record : records) {
-			if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
-				break;
+		// only the 5 columns used are kept, getField(i) is the i-th of them
+		records.setProjection("id", "title", "publication", "author", "content");
+		try {
+			// the values are slices of one reused buffer, trimmed in place and copied once by toString
+			while(records.nextFields()) {
+				if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
+					break;
+				}
+				String parts[] = new String[10];
+				parts[0] = records.getField(0).trim().toString();
+				parts[2] = records.getField(1).trim().toString();
+				parts[3] = records.getField(2).trim().toString();
+				parts[4] = records.getField(3).trim().toString();
+				parts[9] = records.getField(4).trim().toString();
+				addToDataset(parts);
+			}
+		} catch (IOException e) {
+			System.out.println("Error parsing the file \"" + fileName + "\"");
+			e.printStackTrace();
+		}
+		System.out.println(getParseInfo());
+	}
+
+	// the file is split on record boundaries and the parts are parsed at the same time, the publications are added in file order
+	public void addValuesCSV(String fileName, int threads) {
+		System.out.println("Reading and parsing file with " + threads + " threads...");
+		try {
+			ParallelCSVParser parser = new ParallelCSVParser(Paths.get(fileName), CSVFormat.RFC4180.withFirstRecordAsHeader(), threads);
+			// the parsers of the parts only keep the 5 columns used, get(i) is the i-th of them
+			parser.setProjection("id", "title", "publication", "author", "content");
+			parser.parse(record -> {
+				if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
+					return false;
+				}
+				String parts[] = new String[10];
+				parts[0] = record.get(0).trim();
+				parts[2] = record.get(1).trim();
+				parts[3] = record.get(2).trim();
+				parts[4] = record.get(3).trim();
+				parts[9] = record.get(4).trim();
+				addToDataset(parts);
+				return true;
+			});
+		} catch (IOException e) {
+			System.out.println("Error parsing the file \"" + fileName + "\"");
+			e.printStackTrace();
+		}
+		System.out.println(getParseInfo());
+	}
+
+	// the file is memory mapped and parsed as bytes, only the 5 columns used are decoded
+	public void addValuesCSVMapped(String fileName) {
+		System.out.println("Reading and parsing file...");
+		try(MappedCSVParser parser = new MappedCSVParser(Paths.get(fileName), CSVFormat.RFC4180.withFirstRecordAsHeader(), "id", "title", "publication", "author", "content")) {
+			while(parser.next()) {
+				if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
+					break;
+				}
+				String parts[] = new String[10];
+				parts[0] = parser.get(0).trim();
+				parts[2] = parser.get(1).trim();
+				parts[3] = parser.get(2).trim();
+				parts[4] = parser.get(3).trim();
+				parts[9] = parser.get(4).trim();
+				addToDataset(parts);
 			}
-			String parts[] = new String[10];
-		    parts[0] = record.get("id").trim();
-		    parts[2] = record.get("title").trim();
-		    parts[3] = record.get("publication").trim();
-		    parts[4] = record.get("author").trim();
-		    parts[9] = record.get("content").trim();
-		    addToDataset(parts);
+		} catch (IOException e) {
+			System.out.println("Error parsing the file \"" + fileName + "\"");
+			e.printStackTrace();
 		}
 		System.out.println(getParseInfo());
 	}
-	
+
 	public void addToDataset(String[] parts) {
-		dataset.add(new Publication(this.dataset.size(), parts[4], parts[2], parts[3], parts[9]));
-		titlesBloomFilter.add(parts[2]);
-		authorsBloomFilter.add(parts[4]);
-		titlesBloomFilterIncremental.add(parts[2]);
+		addPublication(new Publication(this.dataset.size(), parts[4], parts[2], parts[3], parts[9]), parts[4]);
 	}
 	
+	// the file is read one line at a time, only the current line is kept in memory
 	public void addValuesCSV(File fileName, String sep) {
-		System.out.println("Reading file...");
-		List<String> news = getLines(fileName);
-		System.out.println("File has been successfully read\nParsing data...");
-		
-		for(int i = 1 ; i < news.size() ; i++) {
-			if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
-				break;
+		System.out.println("Reading and parsing file...");
+		BufferedReader reader = null;
+		try {
+			reader = Files.newBufferedReader(fileName.toPath());
+			reader.readLine();		// header
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(this.maxValues != 0 && this.maxValues <= dataset.size()) {
+					break;
+				}
+				addLine(line, sep);
 			}
-			String parts[] = news.get(i).split(sep);
-			try {
-				if(this.onlyTrustTrustedEntities) {
-					if(isTrusted(parts[3].trim())) {
-						addToDataset(parts, sep);
-					}
-					else {
-						this.excluded++;
-					}
+		} catch (IOException e) {
+			System.out.println("Error reading the lines of the file \"" + fileName.getAbsolutePath() + "\"");
+			e.printStackTrace();
+		}
+		finally {
+			if(reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
-				else {
+			}
+		}
+		System.out.println(getParseInfo());
+	}
+	
+	private void addLine(String line, String sep) {
+		String parts[] = line.split(sep);
+		try {
+			if(this.onlyTrustTrustedEntities) {
+				if(isTrusted(parts[3].trim())) {
 					addToDataset(parts, sep);
 				}
+				else {
+					this.excluded++;
+				}
 			}
-			catch(Exception e) {
-				this.errors++;
+			else {
+				addToDataset(parts, sep);
 			}
 		}
-		System.out.println(getParseInfo());
+		catch(Exception e) {
+			this.errors++;
+		}
 	}
 	
 	private void addToDataset(String[] parts, String sep) {
-		dataset.add(new Publication(this.dataset.size(), parts[4], parts[2], parts[3], getContent(parts,9, sep)));
-		titlesBloomFilter.add(parts[2]);
-		authorsBloomFilter.add(parts[1]);
+		addPublication(new Publication(this.dataset.size(), parts[4], parts[2], parts[3], getContent(parts,9, sep)), parts[1]);
 	}
 	
 	public void addToDataset(Publication p) {
+		addPublication(p, p.getAuthor());
+	}
+	
+	/*
+	 * 		the title and author go into the filters before the publication is added, so an exception leaves the dataset as it was
+	 * 		a cuckoo filter stores a fingerprint on every add, so it gets each title once: when the counting filter has not
+	 * 		seen it yet, removeFromDataset takes it out with the last publication of the title (authors are never removed)
+	 */
+	private void addPublication(Publication p, String author) {
+		if(!this.titlesBloomFilterIncremental.contains(p.getTitle()) || isNew(this.titlesBloomFilter, p.getTitle())) {
+			this.titlesBloomFilter.add(p.getTitle());
+		}
+		if(isNew(this.authorsBloomFilter, author)) {
+			this.authorsBloomFilter.add(author);
+		}
 		p.setId(this.dataset.size());
-		dataset.add(p);
-		authorsBloomFilter.add(p.getAuthor());
-		titlesBloomFilter.add(p.getTitle());
+		this.dataset.add(p);
+		this.titlesBloomFilterIncremental.add(p.getTitle());
+		countFrequencies(p, 1);
+	}
+	
+	// adding a value again does not change the bloom filters, only the cuckoo filter would store it twice
+	private static boolean isNew(BloomFilter filter, String value) {
+		return !(filter instanceof CuckooFilter) || !filter.contains(value);
+	}
+	
+	private void countFrequencies(Publication p, int count) {
+		this.titlesFrequency.add(p.getTitle(), count);
+		this.authorsFrequency.add(p.getAuthor(), count);
+		this.publicatorsFrequency.add(p.getPublicator(), count);
+	}
+	
+	// retracted or corrected publications leave the title counters and the frequencies, the plain bloom filters can not forget them
+	public Publication removeFromDataset(int id) {
+		Publication p = this.dataset.remove(id);
+		this.titlesBloomFilterIncremental.remove(p.getTitle());
+		countFrequencies(p, -1);
+		// the cuckoo filter has the title once, it only leaves with the last publication of the title
+		if(this.titlesBloomFilter instanceof CuckooFilter && !this.titlesBloomFilterIncremental.contains(p.getTitle())) {
+			((CuckooFilter) this.titlesBloomFilter).remove(p.getTitle());
+		}
+		for(int i=id;i<this.dataset.size();i++) {
+			this.dataset.get(i).setId(i);
+		}
+		this.newsIndex = null;
+		return p;
+	}
+	
+	/*
+	 * 		adds the publications and filters of a dataset filled elsewhere (another csv file, thread or node)
+	 * 		both must have been created with the same numValuesAprox and filter types
+	 * 		everything is checked before anything is changed, a dataset that can not be merged leaves this one as it was
+	 * 		the publications are copied, the other dataset keeps its own ids
+	 */
+	public void merge(Dataset other) {
+		checkUnion(this.titlesBloomFilter, other.titlesBloomFilter);
+		checkUnion(this.authorsBloomFilter, other.authorsBloomFilter);
+		this.titlesBloomFilterIncremental.checkCompatible(other.titlesBloomFilterIncremental);
+		this.titlesFrequency.checkCompatible(other.titlesFrequency);
+		this.authorsFrequency.checkCompatible(other.authorsFrequency);
+		this.publicatorsFrequency.checkCompatible(other.publicatorsFrequency);
+		union(this.titlesBloomFilter, other.titlesBloomFilter);
+		union(this.authorsBloomFilter, other.authorsBloomFilter);
+		this.titlesBloomFilterIncremental.union(other.titlesBloomFilterIncremental);
+		this.titlesFrequency.merge(other.titlesFrequency);
+		this.authorsFrequency.merge(other.authorsFrequency);
+		this.publicatorsFrequency.merge(other.publicatorsFrequency);
+		for(Publication p: other.dataset) {
+			this.dataset.add(new Publication(this.dataset.size(), p.getAuthor(), p.getTitle(), p.getPublicator(), p.getContent()));
+		}
+		this.errors += other.errors;
+		this.excluded += other.excluded;
+		this.newsIndex = null;
+	}
+	
+	private static void checkUnion(BloomFilter filter, BloomFilter other) {
+		if(filter instanceof BloomFilterBlocked && other instanceof BloomFilterBlocked) {
+			((BloomFilterBlocked) filter).checkCompatible((BloomFilterBlocked) other);
+		}
+		else if(filter instanceof ShardedBloomFilter && other instanceof ShardedBloomFilter) {
+			((ShardedBloomFilter) filter).checkCompatible((ShardedBloomFilter) other);
+		}
+		else if(filter instanceof CuckooFilter && other instanceof CuckooFilter) {
+			((CuckooFilter) filter).checkUnion((CuckooFilter) other);
+		}
+		else if(filter instanceof ScalableBloomFilter && other instanceof ScalableBloomFilter) {
+			((ScalableBloomFilter) filter).checkUnion((ScalableBloomFilter) other);
+		}
+		else {
+			throw new IllegalArgumentException("Can not merge a " + filter.getClass().getSimpleName() + " with a " + other.getClass().getSimpleName());
+		}
+	}
+	
+	// only called after checkUnion, both filters have the same type
+	private static void union(BloomFilter filter, BloomFilter other) {
+		if(filter instanceof BloomFilterBlocked) {
+			((BloomFilterBlocked) filter).union((BloomFilterBlocked) other);
+		}
+		else if(filter instanceof ShardedBloomFilter) {
+			((ShardedBloomFilter) filter).union((ShardedBloomFilter) other);
+		}
+		else if(filter instanceof CuckooFilter) {
+			((CuckooFilter) filter).union((CuckooFilter) other);
+		}
+		else {
+			((ScalableBloomFilter) filter).union((ScalableBloomFilter) other);
+		}
 	}
 	
 	public String[] getPublicators() {
-		ArrayList<String> publicators = new ArrayList<String>();
+		LinkedHashSet<String> publicators = new LinkedHashSet<String>();		// keeps the order of the first appearance
 		for(int i=0;i<this.dataset.size();i++) {
-			String publicator = this.dataset.get(i).getPublicator();
-			if(!publicators.contains(publicator)) {
-				publicators.add(publicator);
-			}
+			publicators.add(this.dataset.get(i).getPublicator());
 		}
-		String[] content = new String[publicators.size()];
-		for(int i = 0;i<publicators.size();i++) {
-			content[i] = publicators.get(i);
+		return publicators.toArray(new String[publicators.size()]);
+	}
+	
+	// approximate counts, never lower than the real ones
+	public int getTitleCount(String title) {
+		return this.titlesFrequency.estimate(title.trim());
+	}
+	
+	public int getAuthorCount(String author) {
+		return this.authorsFrequency.estimate(author.trim());
+	}
+	
+	public int getPublicatorCount(String publicator) {
+		return this.publicatorsFrequency.estimate(publicator.trim());
+	}
+	
+	public List<String> getTopTitles(int k) {
+		return this.titlesFrequency.getHeavyHitters(k);
+	}
+	
+	public List<String> getTopAuthors(int k) {
+		return this.authorsFrequency.getHeavyHitters(k);
+	}
+	
+	public List<String> getTopPublicators(int k) {
+		return this.publicatorsFrequency.getHeavyHitters(k);
+	}
+	
+	public void showTopTitles(int k) {
+		for(String title: getTopTitles(k)) {
+			System.out.println(getTitleCount(title) + "\t" + title);
 		}
-		return content;
 	}
 	
 	private boolean isTrusted(String publicator) {
@@ -383,6 +740,19 @@ public class Dataset {
 		return this.titlesBloomFilterIncremental.containsMoreThanOne(title.trim());
 	}
 	
+	public double getFalsePositiveProbability() {
+		return this.falsePositiveProbability;
+	}
+	
+	// predicted from the bits already set, grows above the target when more than numValuesAprox values are added
+	public double getTitlesFalsePositiveProbability() {
+		return this.titlesBloomFilter.getFalsePositiveProbability();
+	}
+	
+	public double getAuthorsFalsePositiveProbability() {
+		return this.authorsBloomFilter.getFalsePositiveProbability();
+	}
+	
 	public void setMaxValues(int value) {
 		this.maxValues = value;
 	}
@@ -461,6 +831,11 @@ public class Dataset {
 		return list;
 	}
 	
+	// the filter alone, never misses an author but can be a false positive (at most getAuthorsFalsePositiveProbability)
+	public boolean authorMightExist(String authorName) {
+		return this.authorsBloomFilter.contains(authorName);
+	}
+	
 	public boolean authorExits(String authorName) {
 		if(!this.authorsBloomFilter.contains(authorName)) {
 			return false;
@@ -496,7 +871,7 @@ public class Dataset {
 		return list;
 	}
 	
-	public BloomFilterIncremental getBloomFilterIncremental() {
+	public BloomFilterCounting getBloomFilterIncremental() {
 		// for testing
 		return this.titlesBloomFilterIncremental;
 	}
@@ -548,25 +923,14 @@ public class Dataset {
 	}
 	
 	private String getContent(String[] parts, int place, String sep) {
-		String content = "";
+		StringBuilder content = new StringBuilder();
 		for(int i=place;i<parts.length;i++) {
-			content += parts[i];
+			content.append(parts[i]);
 			if(i != parts.length-1) {
-				content += ",";
+				content.append(',');
 			}
 		}
-		return content;
-	}
-	
-	private List<String> getLines(File fileName){
-		List<String> lines = null;
-		try {
-			lines = Files.readAllLines(Paths.get(fileName.getAbsolutePath()));
-		} catch (IOException e) {
-			System.out.println("Error reading the lines of the file \"" + fileName.getAbsolutePath() + "\"");
-			e.printStackTrace();
-		}
-		return lines;
+		return content.toString();
 	}
 	
 	/// ########################################################33
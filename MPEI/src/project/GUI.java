@@ -41,6 +41,9 @@ public class GUI {
 				if(dataset. authorExits(aut)){
 					System.out.println("O autor "+aut+" existe no Dataset!");
 				}
+				else if(dataset.authorMightExist(aut)){
+					System.out.println("O autor "+aut+" pode existir nos filtros carregados!");
+				}
 				else{
 					System.out.println("O autor "+aut+" não existe no Dataset!");
 				}
@@ -1,6 +1,7 @@
 package project;
 
 public class Hash {
+	public static final HashFunction MURMUR3 = new Murmur3Hash();
 	
 	public static int multiplic(String content) {
 		return 1;
@@ -26,5 +27,33 @@ public class Hash {
 		h = h ^ ki;
 		return Math.abs(h);
 	}
+	
+	// Kirsch-Mitzenmacher: the i-th of k indices is h1 + i*h2, both taken from one 64 bit hash
+	// step is secondHash(hash), computed once per value and not once per index
+	public static long index(long hash, long step, int i, long size) {
+		return ((hash + i * step) & Long.MAX_VALUE) % size;
+	}
+	
+	public static long secondHash(long hash) {
+		return fmix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+	}
+	
+	public static long fmix64(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	public static int fmix32(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
 
 }
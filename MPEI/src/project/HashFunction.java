@@ -0,0 +1,6 @@
+package project;
+
+public interface HashFunction {
+	long hash64(CharSequence content);
+	long hash64(byte[] content, int offset, int length);
+}
@@ -0,0 +1,222 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class LSHIndex {
+	private final int bands;
+	private final int rows;
+	private long[][] keys;
+	private int[][] heads;		// row + 1 of the last row inserted in the bucket, 0 if empty
+	private int[][] next;		// row + 1 of the previous row in the same bucket, 0 if none
+	private int size;
+
+	/*
+	 * 		signature:	| band 0 | band 1 | ... | band b-1 |
+	 * 		each band has "rows" values and is hashed into its own table,
+	 * 		rows that share the same bucket in at least one band are candidates
+	 */
+
+	public LSHIndex(int bands, int rows) {
+		if(bands <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("Bands and rows must be positive");
+		}
+		this.bands = bands;
+		this.rows = rows;
+		this.size = 0;
+		this.keys = new long[bands][16];
+		this.heads = new int[bands][16];
+		this.next = new int[bands][16];
+	}
+
+	public static int[] getBandsAndRows(int numPermutacoes, double threshHold) {
+		// largest r whose s-curve threshold (1/b)^(1/r) is still below the wanted threshold
+		int bestRows = 1;
+		for(int r=1;r<=numPermutacoes;r++) {
+			int b = numPermutacoes / r;
+			if(Math.pow(1.0 / b, 1.0 / r) <= threshHold) {
+				bestRows = r;
+			}
+		}
+		return new int[] {numPermutacoes / bestRows, bestRows};
+	}
+
+	public int add(SignatureMatrix store, int row) {
+		int id = this.size;
+		if(id + 1 > this.keys[0].length / 2) {
+			resize();
+		}
+		if(id >= this.next[0].length) {
+			for(int b=0;b<this.bands;b++) {
+				this.next[b] = Arrays.copyOf(this.next[b], this.next[b].length * 2);
+			}
+		}
+		for(int b=0;b<this.bands;b++) {
+			long key = bandKey(store, row, b);
+			int slot = findSlot(this.keys[b], this.heads[b], key);
+			this.keys[b][slot] = key;
+			this.next[b][id] = this.heads[b][slot];
+			this.heads[b][slot] = id + 1;
+		}
+		this.size++;
+		return id;
+	}
+
+	// ids bigger than minId that share at least one band with the row, sorted and without repetitions
+	public int[] getCandidates(SignatureMatrix store, int row, int minId) {
+		long[] bandKeys = new long[this.bands];
+		for(int b=0;b<this.bands;b++) {
+			bandKeys[b] = bandKey(store, row, b);
+		}
+		return getCandidates(bandKeys, minId);
+	}
+	
+	public int[] getCandidates(int[] signature, int offset) {
+		long[] bandKeys = new long[this.bands];
+		for(int b=0;b<this.bands;b++) {
+			bandKeys[b] = bandKey(signature, offset, b);
+		}
+		return getCandidates(bandKeys, -1);
+	}
+	
+	private int[] getCandidates(long[] bandKeys, int minId) {
+		int[] candidates = new int[8];
+		int count = 0;
+		for(int b=0;b<this.bands;b++) {
+			int slot = findSlot(this.keys[b], this.heads[b], bandKeys[b]);
+			// buckets are chained from the newest to the oldest row
+			for(int id = this.heads[b][slot];id != 0 && id - 1 > minId;id = this.next[b][id - 1]) {
+				if(count == candidates.length) {
+					candidates = Arrays.copyOf(candidates, count * 2);
+				}
+				candidates[count++] = id - 1;
+			}
+		}
+		Arrays.sort(candidates, 0, count);
+		int unique = 0;
+		for(int i=0;i<count;i++) {
+			if(unique == 0 || candidates[unique - 1] != candidates[i]) {
+				candidates[unique++] = candidates[i];
+			}
+		}
+		return Arrays.copyOf(candidates, unique);
+	}
+
+	public int getBands() {
+		return this.bands;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	// bands, rows, size, capacity, then for each band: keys[capacity], heads[capacity], next[size]
+	public void write(DataOutputStream out) throws IOException {
+		int capacity = this.keys[0].length;
+		out.writeInt(this.bands);
+		out.writeInt(this.rows);
+		out.writeInt(this.size);
+		out.writeInt(capacity);
+		for(int b=0;b<this.bands;b++) {
+			for(int i=0;i<capacity;i++) {
+				out.writeLong(this.keys[b][i]);
+			}
+			for(int i=0;i<capacity;i++) {
+				out.writeInt(this.heads[b][i]);
+			}
+			for(int i=0;i<this.size;i++) {
+				out.writeInt(this.next[b][i]);
+			}
+		}
+	}
+
+	// copied to the heap, an index only grows by adding rows
+	static LSHIndex read(ByteBuffer buffer) throws IOException {
+		if(buffer.remaining() < 16) {
+			throw new IOException("LSH index is truncated");
+		}
+		int bands = buffer.getInt();
+		int rows = buffer.getInt();
+		int size = buffer.getInt();
+		int capacity = buffer.getInt();
+		if(bands <= 0 || rows <= 0 || size < 0 || capacity < 16 || Integer.bitCount(capacity) != 1 || size > capacity / 2) {
+			throw new IOException("Invalid LSH index parameters");
+		}
+		if(buffer.remaining() < (long) bands * ((long) capacity * 12 + (long) size * 4)) {
+			throw new IOException("LSH index is truncated");
+		}
+		LSHIndex index = new LSHIndex(bands, rows);
+		index.size = size;
+		for(int b=0;b<bands;b++) {
+			index.keys[b] = new long[capacity];
+			index.heads[b] = new int[capacity];
+			index.next[b] = new int[Math.max(size, 16)];
+			buffer.asLongBuffer().get(index.keys[b]);
+			buffer.position(buffer.position() + capacity * 8);
+			buffer.asIntBuffer().get(index.heads[b]);
+			buffer.position(buffer.position() + capacity * 4);
+			buffer.asIntBuffer().get(index.next[b], 0, size);
+			buffer.position(buffer.position() + size * 4);
+		}
+		return index;
+	}
+
+	public String toString() {
+		return "LSH index with " + this.bands + " bands of " + this.rows + " rows and " + this.size + " signatures";
+	}
+
+	private long bandKey(int[] signature, int offset, int band) {
+		long key = band;
+		int start = offset + band * this.rows;
+		for(int i=start;i<start + this.rows;i++) {
+			key = mix(key, signature[i]);
+		}
+		return key;
+	}
+
+	private long bandKey(SignatureMatrix store, int row, int band) {
+		long key = band;
+		int start = band * this.rows;
+		for(int i=start;i<start + this.rows;i++) {
+			key = mix(key, store.get(row, i));
+		}
+		return key;
+	}
+
+	private static long mix(long key, int value) {
+		key = (key ^ value) * 0x9E3779B97F4A7C15L;
+		return key ^ (key >>> 29);
+	}
+
+	private int findSlot(long[] tableKeys, int[] tableHeads, long key) {
+		int mask = tableKeys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while(tableHeads[slot] != 0 && tableKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void resize() {
+		int capacity = this.keys[0].length * 2;
+		for(int b=0;b<this.bands;b++) {
+			long[] newKeys = new long[capacity];
+			int[] newHeads = new int[capacity];
+			for(int i=0;i<this.keys[b].length;i++) {
+				if(this.heads[b][i] != 0) {
+					int slot = findSlot(newKeys, newHeads, this.keys[b][i]);
+					newKeys[slot] = this.keys[b][i];
+					newHeads[slot] = this.heads[b][i];
+				}
+			}
+			this.keys[b] = newKeys;
+			this.heads[b] = newHeads;
+		}
+	}
+}
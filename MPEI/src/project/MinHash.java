@@ -1,19 +1,47 @@
 package project;
 
-import java.math.BigInteger;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class MinHash {
 	private final static int largePrimeNumber = 10007;
+	private final static int densifiedMark = 1 << 30;		// one permutation values only use the lowest 30 bits
+	private final static int fileMagic = 0x4D484153;	// "MHAS"
+	private final static int fileVersion = 4;		// 4: shingle hashes finalized with fmix32, older signatures are not comparable
+	private final static int digestLength = 32;
+	private final static int fileHeaderLength = 52 + digestLength;
 	private int numPermutacoes;
 	private int[] A, B;
-	private int[][] signatures;
+	private SignatureMatrix signatures;
 	private int shinglesLength;
+	private int shinglePower;		// 37^shinglesLength, used to take the oldest char out of the rolling hash
 	private double threshHold;
-	private static boolean removeSpaces = true;
+	private boolean removeSpaces = true;
+	private int bands, rowsPerBand;
+	private boolean customBands;
+	private LSHIndex index;
+	private int parallelism;
+	private ForkJoinPool pool;
+	private int neededEquals;
+	private boolean onePermutation;
 	
 	
 	/*
@@ -32,8 +60,17 @@ public class MinHash {
 		this.A = getRandomValues(numPermutacoes);
 		this.B = getRandomValues(this.A);
 		this.shinglesLength = letraLen;
-		this.signatures = new int[1][numPermutacoes];
+		this.shinglePower = 1;
+		for(int i=0;i<letraLen;i++) {
+			this.shinglePower *= 37;
+		}
+		this.signatures = new SignatureStore(numPermutacoes);
 		this.threshHold = threshHold;
+		this.customBands = false;
+		this.parallelism = 1;
+		this.onePermutation = false;
+		setNeededEquals();
+		setBandsFromThreshHold();
 	}
 	
 	public MinHash(int numPermutacoes) {
@@ -44,6 +81,132 @@ public class MinHash {
 		this(numPermutacoes, letraLen, 0.6);
 	}
 	
+	/*
+	 * 		file format (big endian):
+	 * 			header:		magic, version, numPermutacoes, shinglesLength, threshHold (double), removeSpaces,
+	 * 						bands, rowsPerBand, customBands, bits, onePermutation, rows, digest[32]
+	 * 			A[numPermutacoes], B[numPermutacoes]
+	 * 			bits == 32:	signatures[rows * numPermutacoes]		-> row major ints, mapped as is when loading
+	 * 			otherwise:	words[rows * wordsPerRow]				-> packed longs of BBitSignatureStore
+	 * 			LSH index of the bands and rows above								-> see LSHIndex.write
+	 * 		the digest identifies the documents hashed (all zeros if not given), load(file, digest) rejects other files
+	 */
+	
+	public void save(File file) throws IOException {
+		save(file, new byte[digestLength]);
+	}
+	
+	public void save(File file, byte[] digest) throws IOException {
+		if(digest.length != digestLength) {
+			throw new IllegalArgumentException("Digest must have " + digestLength + " bytes");
+		}
+		// the index is saved too, so the first query after loading does not have to band every row again
+		LSHIndex index = getIndex();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(fileMagic);
+			out.writeInt(fileVersion);
+			out.writeInt(this.numPermutacoes);
+			out.writeInt(this.shinglesLength);
+			out.writeDouble(this.threshHold);
+			out.writeInt(this.removeSpaces ? 1 : 0);
+			out.writeInt(this.bands);
+			out.writeInt(this.rowsPerBand);
+			out.writeInt(this.customBands ? 1 : 0);
+			out.writeInt(this.signatures.getBits());
+			out.writeInt(this.onePermutation ? 1 : 0);
+			out.writeInt(this.signatures.size());
+			out.write(digest);
+			for(int i=0;i<this.numPermutacoes;i++) {
+				out.writeInt(this.A[i]);
+			}
+			for(int i=0;i<this.numPermutacoes;i++) {
+				out.writeInt(this.B[i]);
+			}
+			this.signatures.write(out);
+			index.write(out);
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	// the signatures stay in the read only mapping (shared with other processes) until something is added
+	public static MinHash load(File file) throws IOException {
+		return load(file, null);
+	}
+	
+	// throws IOException if the file was saved with another digest, null accepts any file
+	public static MinHash load(File file, byte[] digest) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Signature file \"" + file.getAbsolutePath() + "\" is too big to be mapped");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.remaining() < fileHeaderLength || buffer.getInt() != fileMagic) {
+				throw new IOException("\"" + file.getAbsolutePath() + "\" is not a Min Hash signature file");
+			}
+			int version = buffer.getInt();
+			if(version != fileVersion) {
+				throw new IOException("Unsupported Min Hash signature file version " + version);
+			}
+			int numPermutacoes = buffer.getInt();
+			int shinglesLength = buffer.getInt();
+			double threshHold = buffer.getDouble();
+			boolean removeSpaces = buffer.getInt() == 1;
+			int bands = buffer.getInt();
+			int rowsPerBand = buffer.getInt();
+			boolean customBands = buffer.getInt() == 1;
+			int bits = buffer.getInt();
+			boolean onePermutation = buffer.getInt() == 1;
+			int rows = buffer.getInt();
+			byte[] fileDigest = new byte[digestLength];
+			buffer.get(fileDigest);
+			if(digest != null && !MessageDigest.isEqual(digest, fileDigest)) {
+				throw new IOException("Min Hash signature file \"" + file.getAbsolutePath() + "\" was saved for other documents");
+			}
+			MinHash minHash = new MinHash(numPermutacoes, shinglesLength, threshHold);
+			if(bits != 32) {
+				minHash.setBits(bits);
+			}
+			long signaturesLength = bits == 32 ? (long) rows * numPermutacoes * 4 : (long) rows * ((BBitSignatureStore) minHash.signatures).getWordsPerRow() * 8;
+			if(buffer.remaining() < (long) numPermutacoes * 8 + signaturesLength) {
+				throw new IOException("Min Hash signature file \"" + file.getAbsolutePath() + "\" is truncated");
+			}
+			minHash.setRemoveSpaces(removeSpaces);
+			minHash.onePermutation = onePermutation;
+			IntBuffer values = buffer.asIntBuffer();
+			values.get(minHash.A);
+			values.get(minHash.B);
+			buffer.position(buffer.position() + numPermutacoes * 8);
+			if(bits == 32) {
+				IntBuffer mapped = buffer.asIntBuffer();
+				mapped.limit((int) (signaturesLength / 4));		// the LSH index follows the signatures
+				minHash.signatures = new SignatureStore(numPermutacoes, mapped);
+			}
+			else {
+				// b-bit signatures are small enough to be copied to the heap
+				long[] words = new long[(int) (signaturesLength / 8)];
+				buffer.asLongBuffer().get(words);
+				minHash.signatures = new BBitSignatureStore(numPermutacoes, bits, words);
+			}
+			buffer.position(buffer.position() + (int) signaturesLength);
+			if(customBands) {
+				minHash.setBands(bands, rowsPerBand);
+			}
+			LSHIndex index = LSHIndex.read(buffer);
+			if(buffer.hasRemaining() || index.size() != rows || index.getBands() != minHash.bands || index.getRows() != minHash.rowsPerBand) {
+				throw new IOException("Min Hash signature file \"" + file.getAbsolutePath() + "\" has an invalid LSH index");
+			}
+			minHash.index = index;
+			return minHash;
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
 	public List<Integer> getSimilars(int numValues) {
 		List<Integer> list = new LinkedList<Integer>();
 		for(int i=0;i<numValues;i++) {
@@ -59,46 +222,32 @@ public class MinHash {
 	}
 	
 	public List<LinkedList<Integer>> getSimilaresWithConstantField(List<String> similars, List<String> constants){
-		boolean found;
 		LinkedList<Integer> llAux;
 		List<LinkedList<Integer>> list = new LinkedList<LinkedList<Integer>>();
 		HashSet<Integer> used = new HashSet<Integer>();
+		LSHIndex index = getIndex();
 		int count = 0;
-		int iterations = (int) Math.ceil(((this.signatures.length*(this.signatures.length-1))/2)/10);
-		int iteration = 0;
-		for(int i=0;i<this.signatures.length-1;i++) {			
+		for(int i=0;i<this.signatures.size()-1;i++) {
+			// ############ show progress ##################
+			count = showProgress(i, this.signatures.size()-1, count);
+			// #############################################
 			llAux = new LinkedList<Integer>();
-			found = false;
-			for(int j=i+1;j<this.signatures.length;j++) {
-				
+			for(int j: index.getCandidates(this.signatures, i, i)) {
 				if(constants.get(i).equals(constants.get(j))) {
 					if(!used.contains(j)) {
 						if(areSimilar(i, j)) {
-							found = true;
 							llAux.add(j);
 							used.add(j);
 						}
 					}
 				}
-				// ############ show progress ##################
-				if(iteration == iterations*count) {
-					if(count != 10) {
-						System.out.printf("%d%%.. ", count*10);
-					}
-					else {
-						System.out.printf("%d%% ", count*10);
-					}
-					count++;
-				}
-				// #############################################
-				
-				iteration++;
 			}
-			if(found) {
+			if(!llAux.isEmpty()) {
 				llAux.addFirst(i);
 				list.add(llAux);
 			}
 		}
+		showProgress(this.signatures.size()-1, this.signatures.size()-1, count);
 		System.out.println("Done!");
 		return list;
 	}
@@ -108,70 +257,150 @@ public class MinHash {
 	}
 	
 	public List<LinkedList<Integer>> getSimilars(boolean showProgress){
-		boolean found;
 		LinkedList<Integer> llAux;
 		List<LinkedList<Integer>> list = new LinkedList<LinkedList<Integer>>();
 		HashSet<Integer> used = new HashSet<Integer>();
-		if(showProgress) {
-			int count = 0;
-			BigInteger iterationsAux = new BigInteger("1").multiply(BigInteger.valueOf(this.signatures.length).multiply(BigInteger.valueOf(this.signatures.length-1))).divide(BigInteger.valueOf(2));
-			BigInteger partAux = BigInteger.ONE.multiply(iterationsAux).divide(BigInteger.valueOf(10));
-			long iteration = 0;
-			long iterations = iterationsAux.longValue();
-			long part = partAux.longValue();
-			for(int i=0;i<this.signatures.length-1;i++) {
-				llAux = new LinkedList<Integer>();
-				found = false;
-				for(int j=i+1;j<this.signatures.length;j++) {
-					// ############ show progress ##################
-					if(iteration == part*count) {
-						if(count != 10) {
-							System.out.printf("%d%%.. ", count*10);
-						}
-						else {
-							System.out.printf("%d%% ", count*10);
-						}
-						count++;
-					}
-					iteration++;
-					// #############################################
-					if(!used.contains(j)) {
-						if(areSimilar(i, j)) {
-							found = true;
-							llAux.add(j);
-							used.add(j);
-						}
-					}
-				}
-				if(found) {
-					llAux.addFirst(i);
-					list.add(llAux);
-				}
+		LSHIndex index = getIndex();
+		int count = 0;
+		for(int i=0;i<this.signatures.size()-1;i++) {
+			// ############ show progress ##################
+			if(showProgress) {
+				count = showProgress(i, this.signatures.size()-1, count);
 			}
-		}
-		else {
-			for(int i=0;i<this.signatures.length-1;i++) {			
-				llAux = new LinkedList<Integer>();
-				found = false;
-				for(int j=i+1;j<this.signatures.length;j++) {
-					if(!used.contains(j)) {
-						if(areSimilar(i, j)) {
-							found = true;
-							llAux.add(j);
-							used.add(j);
-						}
+			// #############################################
+			llAux = new LinkedList<Integer>();
+			// only the rows that share at least one band with i can be similar to it
+			for(int j: index.getCandidates(this.signatures, i, i)) {
+				if(!used.contains(j)) {
+					if(areSimilar(i, j)) {
+						llAux.add(j);
+						used.add(j);
 					}
 				}
-				if(found) {
-					llAux.addFirst(i);
-					list.add(llAux);
-				}
+			}
+			if(!llAux.isEmpty()) {
+				llAux.addFirst(i);
+				list.add(llAux);
 			}
 		}
+		if(showProgress) {
+			showProgress(this.signatures.size()-1, this.signatures.size()-1, count);
+		}
 		System.out.println("Done!");
 		return list;
 	}
 	
+	private int showProgress(int iteration, int iterations, int count) {
+		while(count <= 10 && (long) iterations*count <= (long) iteration*10) {
+			if(count != 10) {
+				System.out.printf("%d%%.. ", count*10);
+			}
+			else {
+				System.out.printf("%d%% ", count*10);
+			}
+			count++;
+		}
+		return count;
+	}
+	
+	public void setBands(int bands, int rowsPerBand) {
+		if(bands * rowsPerBand > this.numPermutacoes) {
+			throw new IllegalArgumentException("Bands times rows can not be bigger than the number of permutations");
+		}
+		this.bands = bands;
+		this.rowsPerBand = rowsPerBand;
+		this.customBands = true;
+		this.index = null;
+	}
+	
+	public LSHIndex getIndex() {
+		if(this.index == null) {
+			this.index = new LSHIndex(this.bands, this.rowsPerBand);
+			for(int i=0;i<this.signatures.size();i++) {
+				this.index.add(this.signatures, i);
+			}
+		}
+		return this.index;
+	}
+	
+	// smallest number of equal values c such that c/numPermutacoes >= threshHold
+	private void setNeededEquals() {
+		int needed = 0;
+		while(needed <= this.numPermutacoes && estimateSimilarity(needed) < this.threshHold) {
+			needed++;
+		}
+		this.neededEquals = needed;
+	}
+	
+	// with b bits two different min hashes still match with probability 1/2^b, that bias is removed from the estimate
+	private double estimateSimilarity(int equals) {
+		double matches = (double) equals/this.numPermutacoes;
+		if(this.signatures.getBits() == 32) {
+			return matches;
+		}
+		double chance = 1.0 / (1 << this.signatures.getBits());
+		return Math.max(0, (matches - chance) / (1 - chance));
+	}
+	
+	private double getMatchProbability(double similarity) {
+		if(this.signatures.getBits() == 32) {
+			return similarity;
+		}
+		double chance = 1.0 / (1 << this.signatures.getBits());
+		return chance + (1 - chance) * similarity;
+	}
+	
+	// keeps only the lowest bits of each min hash (1, 2, 4 or 8), 32 keeps the full values
+	public void setBits(int bits) {
+		if(bits == this.signatures.getBits()) {
+			return;
+		}
+		if(this.signatures.getBits() != 32) {
+			throw new IllegalStateException("Signatures are already reduced to " + this.signatures.getBits() + " bits");
+		}
+		if(bits != 32) {
+			BBitSignatureStore compressed = new BBitSignatureStore(this.numPermutacoes, bits, Math.max(this.signatures.size(), 16));
+			compressed.append(this.signatures.size());
+			int[] row = new int[this.numPermutacoes];
+			for(int i=0;i<this.signatures.size();i++) {
+				this.signatures.getRow(i).get(row);
+				compressed.setRow(i, row, 0);
+			}
+			this.signatures = compressed;
+		}
+		this.index = null;
+		setNeededEquals();
+		setBandsFromThreshHold();
+	}
+	
+	public int getBits() {
+		return this.signatures.getBits();
+	}
+	
+	// one hash per shingle spread over numPermutacoes bins instead of numPermutacoes hashes per shingle
+	public void setOnePermutation(boolean onePermutation) {
+		if(this.signatures.size() > 0 && onePermutation != this.onePermutation) {
+			throw new IllegalStateException("The signature generator can only be changed before adding values");
+		}
+		this.onePermutation = onePermutation;
+	}
+	
+	public boolean isOnePermutation() {
+		return this.onePermutation;
+	}
+	
+	private void setBandsFromThreshHold() {
+		if(!this.customBands) {
+			int[] bandsAndRows = LSHIndex.getBandsAndRows(this.numPermutacoes, getMatchProbability(this.threshHold));
+			// a loaded or already built index is still valid for the same bands
+			if(bandsAndRows[0] != this.bands || bandsAndRows[1] != this.rowsPerBand) {
+				this.index = null;
+			}
+			this.bands = bandsAndRows[0];
+			this.rowsPerBand = bandsAndRows[1];
+		}
+	}
+	
 	public void showSimilars() {
 		showSimilars(getSimilars());
 	}
@@ -179,10 +408,10 @@ public class MinHash {
 	private List<LinkedList<Integer>> getSignaturesList(){
 		List<LinkedList<Integer>> list = new LinkedList<LinkedList<Integer>>();
 		LinkedList<Integer> llAux;
-		for(int i=0;i<this.signatures.length;i++) {
+		for(int i=0;i<this.signatures.size();i++) {
 			llAux = new LinkedList<Integer>();
 			for(int j=0;j<this.numPermutacoes;j++) {
-				llAux.add(this.signatures[i][j]);
+				llAux.add(this.signatures.get(i, j));
 			}
 			list.add(llAux);
 		}
@@ -205,18 +434,50 @@ public class MinHash {
 		}
 	}
 	
+	// top k stored rows most similar to the document, only the rows that share a band with it are compared
+	public List<SimilarityMatch> query(String document, int k) {
+		if(k <= 0) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		int[] probe = new int[this.numPermutacoes];
+		fillSignature(document, probe, 0);
+		// the index has the band keys of the reduced values
+		this.signatures.reduce(probe, 0);
+		PriorityQueue<SimilarityMatch> best = new PriorityQueue<SimilarityMatch>(k + 1, Collections.reverseOrder());
+		for(int candidate: getIndex().getCandidates(probe, 0)) {
+			double similarity = estimateSimilarity(this.signatures.countEquals(candidate, probe, 0));
+			best.add(new SimilarityMatch(candidate, similarity));
+			if(best.size() > k) {
+				best.poll();
+			}
+		}
+		List<SimilarityMatch> list = new ArrayList<SimilarityMatch>(best);
+		Collections.sort(list);
+		return list;
+	}
+	
 	public boolean areSimilar(int v1, int v2) {
-		return getSimilarity(v1, v2) >= this.threshHold;
+		return this.signatures.hasEquals(v1, v2, this.neededEquals);
 	}
 	
 	public double getSimilarity(int v1, int v2) {
-		int count = 0;
-		for(int i=0;i<this.numPermutacoes;i++) {
-			if(this.signatures[v1][i] == this.signatures[v2][i]) {
-				count++;
-			}
-		}
-		return (double) count/this.numPermutacoes;
+		return estimateSimilarity(this.signatures.countEquals(v1, v2));
+	}
+	
+	public IntBuffer getSignature(int row) {
+		return this.signatures.getRow(row);
+	}
+	
+	public int size() {
+		return this.signatures.size();
+	}
+	
+	public int getNumPermutacoes() {
+		return this.numPermutacoes;
+	}
+	
+	public int getShinglesLength() {
+		return this.shinglesLength;
 	}
 	
 	public void add(String[] str) {
@@ -224,14 +485,14 @@ public class MinHash {
 			System.out.println("Action not valid due to lack of values in the database");
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		int initialLength = this.signatures.length;
-		if(initialLength <= 1 && this.signatures[0][0] == 0) {
-			initialLength = 0;
-		}
-		int[][] aux = new int[initialLength + str.length][numPermutacoes];
-		System.arraycopy(this.signatures, 0 , aux, 0, this.signatures.length);
-		this.signatures = aux;
+		// amortized growth, only the new rows are calculated and indexed
+		int initialLength = this.signatures.append(str.length);
 		calculateSignatures(str, initialLength);
+		if(this.index != null) {
+			for(int i=initialLength;i<this.signatures.size();i++) {
+				this.index.add(this.signatures, i);
+			}
+		}
 	}
 	
 	public void add(List<String> list) {
@@ -239,31 +500,128 @@ public class MinHash {
 	}
 	
 	private void calculateSignatures(String[] strings, int initialLength) {
-		String[] auxShingles;
-		int[] signatureVector;
-		for(int i=0;i<strings.length;i++) {
-			auxShingles = getShingles(strings[i]);
-			signatureVector = getSignature(auxShingles);
-			for(int j=0;j<numPermutacoes;j++) {
-				this.signatures[i + initialLength][j] = signatureVector[j];
+		if(this.parallelism > 1 && strings.length > 1) {
+			// every row is independent, so the documents are shared between the workers
+			try {
+				getPool().submit(() -> IntStream.range(0, strings.length).parallel().forEach(i -> calculateSignature(strings[i], i + initialLength))).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Signature calculation was interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Error calculating signatures", e.getCause());
+			}
+		}
+		else {
+			for(int i=0;i<strings.length;i++) {
+				calculateSignature(strings[i], i + initialLength);
 			}
 		}
 	}
 	
-	private int[] getSignature(String[] shingles) {
+	private void calculateSignature(String str, int row) {
 		int[] signature = new int[this.numPermutacoes];
-		signature = setArrayToValue(signature, this.largePrimeNumber);
-		int auxSig, auxHash;
-		for(int k=0;k<shingles.length;k++) {
-			auxHash = Hash.hash(shingles[k]);
+		fillSignature(str, signature, 0);
+		this.signatures.setRow(row, signature, 0);
+	}
+	
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		if(parallelism != this.parallelism && this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	// one pool for every add, the common pool when it has the same parallelism, idle workers of the others end by themselves
+	private ForkJoinPool getPool() {
+		if(this.pool == null) {
+			this.pool = this.parallelism == ForkJoinPool.getCommonPoolParallelism() ? ForkJoinPool.commonPool() : new ForkJoinPool(this.parallelism);
+		}
+		return this.pool;
+	}
+	
+	// walks the document once, the hash of each shingle is rolled from the previous one (the Hash.hash polynomial, then fmix32)
+	private void fillSignature(CharSequence str, int[] signature, int offset) {
+		int empty = this.onePermutation ? -1 : MinHash.largePrimeNumber;
+		for(int j=0;j<this.numPermutacoes;j++) {
+			signature[offset + j] = empty;
+		}
+		int[] window = new int[this.shinglesLength];
+		int hash = 0, position = 0, auxSig, slot, mixed;
+		char c;
+		for(int i=0;i<str.length();i++) {
+			c = str.charAt(i);
+			if(this.removeSpaces && c == ' ') {
+				continue;
+			}
+			slot = position % this.shinglesLength;
+			hash = 37 * hash + c;
+			if(position >= this.shinglesLength) {
+				hash -= window[slot] * this.shinglePower;
+			}
+			window[slot] = c;
+			position++;
+			if(position < this.shinglesLength) {
+				continue;
+			}
+			// the polynomial hash is finalized so the values are evenly spread
+			mixed = Hash.fmix32(hash);
+			if(this.onePermutation) {
+				// a single hash picks the bin (high bits) and is the value kept in it
+				slot = offset + (int) (((mixed & 0xffffffffL) * this.numPermutacoes) >>> 32);
+				auxSig = mixed >>> 2;
+				if(signature[slot] < 0 || auxSig < signature[slot]) {
+					signature[slot] = auxSig;
+				}
+				continue;
+			}
 			for(int j=0;j<this.numPermutacoes;j++) {  //this.A.length
-				auxSig = (Math.abs(this.A[j] * auxHash) + this.B[j]) % this.largePrimeNumber;
-				if(auxSig < signature[j]) {
-					signature[j] = auxSig;
+				auxSig = (Math.abs(this.A[j] * mixed) + this.B[j]) % MinHash.largePrimeNumber;
+				if(auxSig < signature[offset + j]) {
+					signature[offset + j] = auxSig;
 				}
 			}
 		}
-		return signature;
+		if(this.onePermutation) {
+			densify(signature, offset);
+		}
+	}
+	
+	// optimal densification: an empty bin copies the value of the first non empty bin of its own random probe sequence
+	private void densify(int[] signature, int offset) {
+		boolean found = false;
+		for(int j=0;j<this.numPermutacoes && !found;j++) {
+			found = signature[offset + j] >= 0;
+		}
+		if(!found) {
+			for(int j=0;j<this.numPermutacoes;j++) {
+				signature[offset + j] = MinHash.largePrimeNumber;
+			}
+			return;
+		}
+		int probe;
+		for(int j=0;j<this.numPermutacoes;j++) {
+			if(signature[offset + j] >= 0 && !isDensified(signature, offset, j)) {
+				continue;
+			}
+			for(int attempt=1;;attempt++) {
+				probe = (int) (((Hash.fmix32(j * 0x9E3779B9 + attempt * 0x85EBCA6B) & 0xffffffffL) * this.numPermutacoes) >>> 32);
+				if(signature[offset + probe] >= 0 && !isDensified(signature, offset, probe)) {
+					signature[offset + j] = signature[offset + probe] | densifiedMark;
+					break;
+				}
+			}
+		}
+		for(int j=0;j<this.numPermutacoes;j++) {
+			signature[offset + j] &= ~densifiedMark;
+		}
+	}
+	
+	private boolean isDensified(int[] signature, int offset, int bin) {
+		return (signature[offset + bin] & densifiedMark) != 0;
 	}
 	
 	public double jaccardCoeficient(String s1, String s2) {
@@ -297,9 +655,9 @@ public class MinHash {
 	}
 	
 	public void showSignatures() {
-		for(int i=0;i<signatures.length;i++) {
+		for(int i=0;i<signatures.size();i++) {
 			for(int j=0;j<numPermutacoes;j++) {
-				System.out.printf("%-8d",signatures[i][j]);
+				System.out.printf("%-8d",signatures.get(i, j));
 			}
 			System.out.println();
 		}
@@ -307,13 +665,8 @@ public class MinHash {
 	
 	public void setThreshHold(double threshHold) {
 		this.threshHold = threshHold;
-	}
-	
-	private int[] setArrayToValue(int[] array , int value) {
-		for(int i=0;i<array.length;i++) {
-			array[i] = value;
-		}
-		return array;
+		setNeededEquals();
+		setBandsFromThreshHold();
 	}
 	
 	private String[] getShingles(String str) {
@@ -347,8 +700,8 @@ public class MinHash {
 	private int[] getRandomValues(int len) {
 		int[] a = new int[len];
 		for(int i=0;i<len; i++) {
-			a[i] = (int) (Math.random() * this.largePrimeNumber + 1);
-			if(a[i] == this.largePrimeNumber) {
+			a[i] = (int) (Math.random() * MinHash.largePrimeNumber + 1);
+			if(a[i] == MinHash.largePrimeNumber) {
 				a[i]--;
 			}
 		}
@@ -360,8 +713,8 @@ public class MinHash {
 		int aux;
 		for(int i=0;i < array.length; i++) {
 			do {
-				aux = (int) (Math.random() * this.largePrimeNumber + 1);
-				if(aux == this.largePrimeNumber) {
+				aux = (int) (Math.random() * MinHash.largePrimeNumber + 1);
+				if(aux == MinHash.largePrimeNumber) {
 					aux--;
 				}
 			}
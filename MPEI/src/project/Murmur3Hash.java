@@ -0,0 +1,108 @@
+package project;
+
+public class Murmur3Hash implements HashFunction {
+	private static final long c1 = 0x87c37b91114253d5L;
+	private static final long c2 = 0x4cf5ad432745937fL;
+	private final long seed;
+	
+	/*
+	 * 		MurmurHash3 x64 128 bits, only the first 64 bits are returned
+	 * 		chars are read as UTF-16 little endian, so hash64(str) == hash64(bytes of str in UTF-16LE)
+	 */
+	
+	public Murmur3Hash(long seed) {
+		this.seed = seed & 0xffffffffL;
+	}
+	
+	public Murmur3Hash() {
+		this(0);
+	}
+	
+	public long hash64(CharSequence content) {
+		long h1 = this.seed, h2 = this.seed;
+		int length = content.length();
+		int blocks = length / 8;
+		for(int i=0;i<blocks;i++) {
+			int p = i * 8;
+			long k1 = content.charAt(p) | (long) content.charAt(p + 1) << 16 | (long) content.charAt(p + 2) << 32 | (long) content.charAt(p + 3) << 48;
+			long k2 = content.charAt(p + 4) | (long) content.charAt(p + 5) << 16 | (long) content.charAt(p + 6) << 32 | (long) content.charAt(p + 7) << 48;
+			h1 ^= mixK1(k1);
+			h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+			h2 ^= mixK2(k2);
+			h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+		}
+		long k1 = 0, k2 = 0;
+		int rest = length - blocks * 8;
+		for(int i=0;i<rest;i++) {
+			long c = content.charAt(blocks * 8 + i);
+			if(i < 4) {
+				k1 |= c << (16 * i);
+			}
+			else {
+				k2 |= c << (16 * (i - 4));
+			}
+		}
+		if(rest > 4) {
+			h2 ^= mixK2(k2);
+		}
+		if(rest > 0) {
+			h1 ^= mixK1(k1);
+		}
+		return finish(h1, h2, (long) length * 2);
+	}
+	
+	public long hash64(byte[] content, int offset, int length) {
+		long h1 = this.seed, h2 = this.seed;
+		int blocks = length / 16;
+		for(int i=0;i<blocks;i++) {
+			int p = offset + i * 16;
+			h1 ^= mixK1(getLong(content, p));
+			h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+			h2 ^= mixK2(getLong(content, p + 8));
+			h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+		}
+		long k1 = 0, k2 = 0;
+		int tail = offset + blocks * 16;
+		int rest = length - blocks * 16;
+		for(int i=0;i<rest;i++) {
+			long b = content[tail + i] & 0xffL;
+			if(i < 8) {
+				k1 |= b << (8 * i);
+			}
+			else {
+				k2 |= b << (8 * (i - 8));
+			}
+		}
+		if(rest > 8) {
+			h2 ^= mixK2(k2);
+		}
+		if(rest > 0) {
+			h1 ^= mixK1(k1);
+		}
+		return finish(h1, h2, length);
+	}
+	
+	private static long getLong(byte[] b, int p) {
+		return (b[p] & 0xffL) | (b[p + 1] & 0xffL) << 8 | (b[p + 2] & 0xffL) << 16 | (b[p + 3] & 0xffL) << 24
+				| (b[p + 4] & 0xffL) << 32 | (b[p + 5] & 0xffL) << 40 | (b[p + 6] & 0xffL) << 48 | (b[p + 7] & 0xffL) << 56;
+	}
+	
+	private static long mixK1(long k1) {
+		return Long.rotateLeft(k1 * c1, 31) * c2;
+	}
+	
+	private static long mixK2(long k2) {
+		return Long.rotateLeft(k2 * c2, 33) * c1;
+	}
+	
+	private static long finish(long h1, long h2, long length) {
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = Hash.fmix64(h1);
+		h2 = Hash.fmix64(h2);
+		h1 += h2;
+		return h1;
+	}
+}
@@ -0,0 +1,168 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+public class ScalableBloomFilter implements BloomFilter {
+	private static final int growth = 2;				// each new filter holds twice the values of the previous one
+	private static final double tighteningRatio = 0.8;	// and has 80% of its false positive probability
+	private ArrayList<BloomFilterBitSet> filters;
+	private long capacity;		// values the last filter can take before a new one is needed
+	private long count;			// values added to the last filter
+	private long initialCapacity;
+	private double falsePositiveProbability;
+	private double nextProbability;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		filter i holds initialCapacity * 2^i values with probability p*(1-r)*r^i
+	 * 		the sum of all the probabilities stays below p, no matter how many filters are created
+	 */
+
+	public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability, HashFunction hashFunction) {
+		if(initialCapacity <= 0) {
+			throw new IllegalArgumentException("Initial capacity must be positive");
+		}
+		if(falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.hashFunction = hashFunction;
+		this.filters = new ArrayList<BloomFilterBitSet>();
+		this.nextProbability = falsePositiveProbability * (1 - tighteningRatio);
+		addFilter();
+	}
+
+	public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability) {
+		this(initialCapacity, falsePositiveProbability, Hash.MURMUR3);
+	}
+
+	private ScalableBloomFilter(ArrayList<BloomFilterBitSet> filters, long initialCapacity, double falsePositiveProbability, double nextProbability, long capacity, long count, HashFunction hashFunction) {
+		this.filters = filters;
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.nextProbability = nextProbability;
+		this.capacity = capacity;
+		this.count = count;
+		this.hashFunction = hashFunction;
+	}
+
+	public void add(String content) {
+		// values already present would only fill the last filter faster
+		if(contains(content)) {
+			return;
+		}
+		if(this.count >= this.capacity) {
+			addFilter();
+		}
+		this.filters.get(this.filters.size() - 1).add(content);
+		this.count++;
+	}
+
+	public boolean contains(String content) {
+		// the newest filters are the biggest, most values are there
+		for(int i=this.filters.size()-1;i>=0;i--) {
+			if(this.filters.get(i).contains(content)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * 		copies of the filters of the other one are put before the last filter of this one, which keeps receiving the new values
+	 * 		each filter keeps its own probability, so the bound of the result is the sum of both bounds
+	 */
+	public void union(ScalableBloomFilter other) {
+		checkUnion(other);
+		ArrayList<BloomFilterBitSet> copies = new ArrayList<BloomFilterBitSet>();
+		for(BloomFilterBitSet filter: other.filters) {
+			BloomFilterBitSet copy = BloomFilterBitSet.withBits(filter.getNumBits(), filter.getNumHashFunctions(), this.hashFunction);
+			copy.union(filter);
+			copies.add(copy);
+		}
+		this.filters.addAll(this.filters.size() - 1, copies);
+	}
+
+	public int getNumFilters() {
+		return this.filters.size();
+	}
+
+	public long getNumBits() {
+		long bits = 0;
+		for(BloomFilterBitSet filter: this.filters) {
+			bits += filter.getNumBits();
+		}
+		return bits;
+	}
+
+	public double getTargetFalsePositiveProbability() {
+		return this.falsePositiveProbability;
+	}
+
+	// a false positive of any of the filters is a false positive of the whole
+	public double getFalsePositiveProbability() {
+		double none = 1;
+		for(BloomFilterBitSet filter: this.filters) {
+			none *= 1 - filter.getFalsePositiveProbability();
+		}
+		return 1 - none;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.scalable);
+		out.writeLong(this.initialCapacity);
+		out.writeDouble(this.falsePositiveProbability);
+		out.writeDouble(this.nextProbability);
+		out.writeLong(this.capacity);
+		out.writeLong(this.count);
+		out.writeInt(this.filters.size());
+		for(BloomFilterBitSet filter: this.filters) {
+			filter.write(out);
+		}
+	}
+
+	// every filter keeps its own mapping, only the last one is copied when values are added
+	static ScalableBloomFilter read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		long initialCapacity = buffer.getLong();
+		double falsePositiveProbability = buffer.getDouble();
+		double nextProbability = buffer.getDouble();
+		long capacity = buffer.getLong();
+		long count = buffer.getLong();
+		int numFilters = buffer.getInt();
+		if(initialCapacity <= 0 || numFilters <= 0) {
+			throw new IOException("Invalid bloom filter parameters");
+		}
+		ArrayList<BloomFilterBitSet> filters = new ArrayList<BloomFilterBitSet>();
+		for(int i=0;i<numFilters;i++) {
+			BloomFilter filter = BloomFilterStorage.read(buffer, hashFunction);
+			if(!(filter instanceof BloomFilterBitSet)) {
+				throw new IOException("Invalid filter inside a scalable bloom filter");
+			}
+			filters.add((BloomFilterBitSet) filter);
+		}
+		return new ScalableBloomFilter(filters, initialCapacity, falsePositiveProbability, nextProbability, capacity, count, hashFunction);
+	}
+
+	public String toString() {
+		return "Scalable bloom filter with " + this.filters.size() + " filters, " + getNumBits() + " bits";
+	}
+
+	void checkUnion(ScalableBloomFilter other) {
+		if(this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same hash function can be merged");
+		}
+	}
+
+	private void addFilter() {
+		this.capacity = this.filters.isEmpty() ? this.initialCapacity : this.capacity * growth;
+		double p = this.nextProbability;
+		long numBits = BloomFilterSizing.optimalNumBits(this.capacity, p);
+		this.filters.add(BloomFilterBitSet.withBits(numBits, BloomFilterSizing.optimalNumHashFunctions(this.capacity, numBits), this.hashFunction));
+		this.count = 0;
+		this.nextProbability *= tighteningRatio;
+	}
+}
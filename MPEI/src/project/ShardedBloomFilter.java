@@ -0,0 +1,129 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class ShardedBloomFilter implements BloomFilter {
+	private BloomFilterBitSet[] shards;
+	private int shardBits;
+	private HashFunction hashFunction;
+
+	/*
+	 * 		2^shardBits filters, a value goes to the one given by the first shardBits bits of its mixed hash
+	 * 		(mixed so the shard does not depend on the bits the filters use for their own indexes)
+	 * 		each worker can fill its own shards, or a whole copy, and the results are merged with union
+	 */
+
+	public ShardedBloomFilter(int numShards, long size, double falsePositiveProbability, HashFunction hashFunction) {
+		if(numShards <= 0 || Integer.bitCount(numShards) != 1) {
+			throw new IllegalArgumentException("Number of shards must be a power of 2");
+		}
+		long shardSize = Math.max(1, (size + numShards - 1) / numShards);
+		long numBits = BloomFilterSizing.optimalNumBits(shardSize, falsePositiveProbability);
+		int numHashFunctions = BloomFilterSizing.optimalNumHashFunctions(falsePositiveProbability);
+		this.shards = new BloomFilterBitSet[numShards];
+		for(int i=0;i<numShards;i++) {
+			this.shards[i] = BloomFilterBitSet.withBits(numBits, numHashFunctions, hashFunction);
+		}
+		this.shardBits = Integer.numberOfTrailingZeros(numShards);
+		this.hashFunction = hashFunction;
+	}
+
+	public ShardedBloomFilter(int numShards, long size, double falsePositiveProbability) {
+		this(numShards, size, falsePositiveProbability, Hash.MURMUR3);
+	}
+
+	private ShardedBloomFilter(BloomFilterBitSet[] shards, HashFunction hashFunction) {
+		this.shards = shards;
+		this.shardBits = Integer.numberOfTrailingZeros(shards.length);
+		this.hashFunction = hashFunction;
+	}
+
+	// the value is hashed once, the shard and its bits come from the same hash
+	public void add(String content) {
+		long hash = this.hashFunction.hash64(content);
+		this.shards[getShard(hash)].addHash(hash);
+	}
+
+	public boolean contains(String content) {
+		long hash = this.hashFunction.hash64(content);
+		return this.shards[getShard(hash)].containsHash(hash);
+	}
+
+	public int getShard(String content) {
+		return getShard(this.hashFunction.hash64(content));
+	}
+
+	private int getShard(long hash) {
+		if(this.shardBits == 0) {
+			return 0;
+		}
+		return (int) (Hash.fmix64(hash) >>> (64 - this.shardBits));
+	}
+
+	public BloomFilterBitSet getShard(int shard) {
+		return this.shards[shard];
+	}
+
+	public int getNumShards() {
+		return this.shards.length;
+	}
+
+	public void union(ShardedBloomFilter other) {
+		checkCompatible(other);
+		for(int i=0;i<this.shards.length;i++) {
+			this.shards[i].union(other.shards[i]);
+		}
+	}
+
+	public void intersect(ShardedBloomFilter other) {
+		checkCompatible(other);
+		for(int i=0;i<this.shards.length;i++) {
+			this.shards[i].intersect(other.shards[i]);
+		}
+	}
+
+	// every shard gets the same share of the queries
+	public double getFalsePositiveProbability() {
+		double p = 0;
+		for(BloomFilterBitSet shard: this.shards) {
+			p += shard.getFalsePositiveProbability();
+		}
+		return p / this.shards.length;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(BloomFilterStorage.sharded);
+		out.writeInt(this.shards.length);
+		for(BloomFilterBitSet shard: this.shards) {
+			shard.write(out);
+		}
+	}
+
+	static ShardedBloomFilter read(ByteBuffer buffer, HashFunction hashFunction) throws IOException {
+		int numShards = buffer.getInt();
+		if(numShards <= 0 || Integer.bitCount(numShards) != 1) {
+			throw new IOException("Invalid sharded bloom filter parameters");
+		}
+		BloomFilterBitSet[] shards = new BloomFilterBitSet[numShards];
+		for(int i=0;i<numShards;i++) {
+			BloomFilter filter = BloomFilterStorage.read(buffer, hashFunction);
+			if(!(filter instanceof BloomFilterBitSet)) {
+				throw new IOException("Invalid filter inside a sharded bloom filter");
+			}
+			shards[i] = (BloomFilterBitSet) filter;
+		}
+		return new ShardedBloomFilter(shards, hashFunction);
+	}
+
+	public String toString() {
+		return "Sharded bloom filter with " + this.shards.length + " shards of " + this.shards[0].getNumBits() + " bits";
+	}
+
+	void checkCompatible(ShardedBloomFilter other) {
+		if(this.shards.length != other.shards.length || this.hashFunction != other.hashFunction) {
+			throw new IllegalArgumentException("Only filters with the same shards and hash function can be merged");
+		}
+	}
+}
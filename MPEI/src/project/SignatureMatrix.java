@@ -0,0 +1,20 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+public interface SignatureMatrix {
+	int size();
+	int width();
+	int getBits();
+	int append(int rows);
+	int get(int row, int column);
+	void setRow(int row, int[] signature, int offset);
+	IntBuffer getRow(int row);
+	int countEquals(int row1, int row2);
+	boolean hasEquals(int row1, int row2, int needed);
+	int countEquals(int row, int[] signature, int offset);
+	void reduce(int[] signature, int offset);
+	void write(DataOutputStream out) throws IOException;
+}
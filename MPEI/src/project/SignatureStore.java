@@ -0,0 +1,219 @@
+package project;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+public class SignatureStore implements SignatureMatrix {
+	private static final int maxArrayLength = Integer.MAX_VALUE - 8;
+	private int[] data;
+	private IntBuffer mapped;		// read only rows of a memory mapped file, copied to data on the first append
+	private final int width;
+	private int size;
+
+	/*
+	 * 		row major: | row 0 (width values) | row 1 | ... | row size-1 | free capacity |
+	 */
+
+	public SignatureStore(int width, int initialRows) {
+		if(width <= 0) {
+			throw new IllegalArgumentException("Signature width must be positive");
+		}
+		this.width = width;
+		this.size = 0;
+		this.data = new int[Math.max(initialRows, 1) * width];
+	}
+
+	public SignatureStore(int width) {
+		this(width, 16);
+	}
+
+	public SignatureStore(int width, IntBuffer mapped) {
+		if(width <= 0 || mapped.remaining() % width != 0) {
+			throw new IllegalArgumentException("Buffer does not hold complete rows of " + width + " values");
+		}
+		this.width = width;
+		this.size = mapped.remaining() / width;
+		this.mapped = mapped.slice();
+		this.data = null;
+	}
+
+	// reserves rows at the end of the store and returns the index of the first one
+	public int append(int rows) {
+		int first = this.size;
+		ensureCapacity((long) (first + rows) * this.width);
+		this.size += rows;
+		return first;
+	}
+
+	public int get(int row, int column) {
+		if(this.data == null) {
+			return this.mapped.get(row * this.width + column);
+		}
+		return this.data[row * this.width + column];
+	}
+
+	public void set(int row, int column, int value) {
+		getData()[row * this.width + column] = value;
+	}
+
+	public void setRow(int row, int[] signature, int offset) {
+		System.arraycopy(signature, offset, getData(), row * this.width, this.width);
+	}
+
+	public IntBuffer getRow(int row) {
+		checkRow(row);
+		if(this.data == null) {
+			IntBuffer aux = this.mapped.duplicate();
+			aux.position(row * this.width).limit((row + 1) * this.width);
+			return aux.slice();
+		}
+		return IntBuffer.wrap(this.data, row * this.width, this.width).slice();
+	}
+
+	public int countEquals(int row1, int row2) {
+		int offset1 = row1 * this.width;
+		int offset2 = row2 * this.width;
+		int count = 0;
+		if(this.data == null) {
+			for(int i=0;i<this.width;i++) {
+				if(this.mapped.get(offset1 + i) == this.mapped.get(offset2 + i)) {
+					count++;
+				}
+			}
+			return count;
+		}
+		int[] data = this.data;
+		int i = 0;
+		// 4 comparisons per step without branches
+		for(;i + 4 <= this.width;i+=4) {
+			count += (data[offset1 + i] == data[offset2 + i] ? 1 : 0)
+					+ (data[offset1 + i + 1] == data[offset2 + i + 1] ? 1 : 0)
+					+ (data[offset1 + i + 2] == data[offset2 + i + 2] ? 1 : 0)
+					+ (data[offset1 + i + 3] == data[offset2 + i + 3] ? 1 : 0);
+		}
+		for(;i<this.width;i++) {
+			count += data[offset1 + i] == data[offset2 + i] ? 1 : 0;
+		}
+		return count;
+	}
+
+	// same as countEquals(row1, row2) >= needed, but stops as soon as the answer is known
+	public boolean hasEquals(int row1, int row2, int needed) {
+		if(this.data == null) {
+			return countEquals(row1, row2) >= needed;
+		}
+		int offset1 = row1 * this.width;
+		int offset2 = row2 * this.width;
+		int[] data = this.data;
+		int count = 0;
+		int i = 0;
+		// the bound is checked once per block of 16 values
+		while(i + 16 <= this.width) {
+			for(int end = i + 16;i<end;i+=4) {
+				count += (data[offset1 + i] == data[offset2 + i] ? 1 : 0)
+						+ (data[offset1 + i + 1] == data[offset2 + i + 1] ? 1 : 0)
+						+ (data[offset1 + i + 2] == data[offset2 + i + 2] ? 1 : 0)
+						+ (data[offset1 + i + 3] == data[offset2 + i + 3] ? 1 : 0);
+			}
+			if(count >= needed) {
+				return true;
+			}
+			if(count + this.width - i < needed) {
+				return false;
+			}
+		}
+		for(;i<this.width;i++) {
+			count += data[offset1 + i] == data[offset2 + i] ? 1 : 0;
+		}
+		return count >= needed;
+	}
+
+	public int countEquals(int row, int[] signature, int offset) {
+		int rowOffset = row * this.width;
+		int count = 0;
+		if(this.data == null) {
+			for(int i=0;i<this.width;i++) {
+				if(this.mapped.get(rowOffset + i) == signature[offset + i]) {
+					count++;
+				}
+			}
+			return count;
+		}
+		for(int i=0;i<this.width;i++) {
+			if(this.data[rowOffset + i] == signature[offset + i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// full values are stored, nothing to reduce
+	public void reduce(int[] signature, int offset) {
+	}
+
+	public boolean isMapped() {
+		return this.data == null;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		for(int i=0;i<this.size;i++) {
+			for(int j=0;j<this.width;j++) {
+				out.writeInt(get(i, j));
+			}
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int width() {
+		return this.width;
+	}
+
+	public int getBits() {
+		return 32;
+	}
+
+	public int offset(int row) {
+		return row * this.width;
+	}
+
+	// the backing array changes when the store grows, do not keep it between appends
+	int[] getData() {
+		if(this.data == null) {
+			// copy on write, the mapped file is never changed
+			this.data = new int[this.size * this.width];
+			this.mapped.duplicate().get(this.data);
+			this.mapped = null;
+		}
+		return this.data;
+	}
+
+	public String toString() {
+		if(this.data == null) {
+			return "Memory mapped signature store with " + this.size + " rows of " + this.width + " values";
+		}
+		return "Signature store with " + this.size + " rows of " + this.width + " values (capacity " + (this.data.length / this.width) + " rows)";
+	}
+
+	private void ensureCapacity(long needed) {
+		getData();
+		if(needed <= this.data.length) {
+			return;
+		}
+		if(needed > maxArrayLength) {
+			throw new IllegalStateException("Signature store can not hold more than " + (maxArrayLength / this.width) + " rows");
+		}
+		long capacity = Math.max(needed, Math.min((long) this.data.length * 2, maxArrayLength / this.width * this.width));
+		this.data = Arrays.copyOf(this.data, (int) capacity);
+	}
+
+	private void checkRow(int row) {
+		if(row < 0 || row >= this.size) {
+			throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + this.size + " rows");
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package project;
+
+public class SimilarityMatch implements Comparable<SimilarityMatch> {
+	private final int id;
+	private final double similarity;
+	
+	public SimilarityMatch(int id, double similarity) {
+		this.id = id;
+		this.similarity = similarity;
+	}
+	
+	public int getId() {
+		return this.id;
+	}
+	
+	public double getSimilarity() {
+		return this.similarity;
+	}
+	
+	// most similar first, ties by id
+	public int compareTo(SimilarityMatch other) {
+		int cmp = Double.compare(other.similarity, this.similarity);
+		if(cmp != 0) {
+			return cmp;
+		}
+		return Integer.compare(this.id, other.id);
+	}
+	
+	public String toString() {
+		return String.format("%d (%.2f)", this.id, this.similarity);
+	}
+}
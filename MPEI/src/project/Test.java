@@ -4,11 +4,21 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
 
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.MappedCSVParser;
+import org.apache.commons.csv.ParallelCSVParser;
+
 public class Test {
 	static final Scanner input = new Scanner(System.in);
 	static final String fileName1 = "Articles/articles1.csv";
@@ -32,7 +42,7 @@ public class Test {
 		
 	}
 	
-	public static void testAll() throws FileNotFoundException {
+	public static void testAll() throws IOException {
 		Dataset dataset = new Dataset(100000);
 		dataset.setMaxValues(10000);
 		dataset.addValuesCSV(fileName1);
@@ -41,6 +51,38 @@ public class Test {
 		System.out.println(dataset.toString());
 		testBloomFilter(dataset, 10000000);
 		testMinHash(1500);
+		testMinHashQuery(1000);
+		testFalsePositiveRate(100000, 0.001);
+		testRemoveDuplicates(100000);
+		testBloomFilterStorage(100000, 0.001);
+		testCountMinSketch(10000, 10);
+		testParallelCSVParser(fileName1, 4);
+		testMappedCSVParser(fileName1);
+	}
+	
+	// every stored document must be found by query with similarity 1, also when the signatures are reduced to b bits
+	public static void testMinHashQuery(int value) {
+		System.out.println("TESTING MIN HASH QUERY...");
+		String[] documents = getRandomStrings(value);
+		int[] bitsList = {32, 8, 4, 2, 1};
+		for(int bits: bitsList) {
+			MinHash minHash = new MinHash(100);
+			minHash.add(documents);
+			minHash.setBits(bits);
+			int errors = 0;
+			for(int i=0;i<documents.length;i++) {
+				boolean found = false;
+				for(SimilarityMatch match: minHash.query(documents[i], 5)) {
+					if(minHash.getSimilarity(match.getId(), i) == 1.0 && match.getSimilarity() == 1.0) {
+						found = true;
+					}
+				}
+				if(!found) {
+					errors++;
+				}
+			}
+			System.out.println(String.format("%d bits: stored documents found by query: %.2f%% (%d/%d)", bits, (double) (documents.length - errors)*100/documents.length, documents.length - errors, documents.length));
+		}
 	}
 	
 	public static void testMinHash(int value) throws FileNotFoundException {
@@ -151,7 +193,257 @@ public class Test {
 			}
 		}
 		System.out.println("Bloom Filter: percentage of false positives is: " + (double) (errors*100)/randomValues.length + "%  (" + errors + "/" + randomValues.length + ")");
-		BloomFilterIncremental a = dataset.getBloomFilterIncremental();
+		BloomFilterCounting a = dataset.getBloomFilterIncremental();
+	}
+	
+	// every filter gets the same values, none of them can be missing and the false positives should be close to the predicted ones
+	public static void testFalsePositiveRate(int value, double falsePositiveProbability) {
+		System.out.println("TESTING FALSE POSITIVE RATE...");
+		String[] values = getRandomStrings(value);
+		String[] randomValues = getRandomStrings(value);
+		BloomFilter[] filters = {
+			new BloomFilterBitSet(value, falsePositiveProbability),
+			new BloomFilterOptimized(value, falsePositiveProbability),
+			new BloomFilterConcurrent(value, falsePositiveProbability),
+			new BloomFilterIncremental(value, falsePositiveProbability),
+			new BloomFilterIncrementalConcurrent(value, falsePositiveProbability),
+			new BloomFilterCounting(value, falsePositiveProbability),
+			new BloomFilterBlocked(value, falsePositiveProbability),
+			new ShardedBloomFilter(16, value, falsePositiveProbability),
+			new ScalableBloomFilter(value/16, falsePositiveProbability),		// grows 4 times
+			new CuckooFilter(value)
+		};
+		for(BloomFilter filter: filters) {
+			for(String v: values) {
+				filter.add(v);
+			}
+			int found = 0;
+			for(String v: values) {
+				if(filter.contains(v)) {
+					found++;
+				}
+			}
+			int falsePositives = 0;
+			for(String v: randomValues) {
+				if(filter.contains(v)) {
+					falsePositives++;
+				}
+			}
+			System.out.println(String.format("%s: true positives %.2f%% (%d/%d), false positives %.4f%% (%d/%d), predicted %.4f%%", filter.getClass().getSimpleName(), (double) found*100/values.length, found, values.length, (double) falsePositives*100/randomValues.length, falsePositives, randomValues.length, filter.getFalsePositiveProbability()*100));
+		}
+	}
+	
+	// value i is added 1 + i%3 times: after one remove the values added more than once must still be there, after the last one they should be gone
+	public static void testRemoveDuplicates(int value) {
+		System.out.println("TESTING REMOVE WITH DUPLICATES...");
+		String[] values = getRandomStrings(value);
+		BloomFilterCounting counting = new BloomFilterCounting(value*2, 0.001);
+		CuckooFilter cuckoo = new CuckooFilter(value*2);
+		for(int i=0;i<values.length;i++) {
+			for(int j=0;j<=i%3;j++) {
+				counting.add(values[i]);
+				cuckoo.add(values[i]);
+			}
+		}
+		int duplicates = 0, countingKept = 0, cuckooKept = 0;
+		for(int i=0;i<values.length;i++) {
+			counting.remove(values[i]);
+			cuckoo.remove(values[i]);
+		}
+		for(int i=0;i<values.length;i++) {
+			if(i%3 != 0) {
+				duplicates++;
+				if(counting.contains(values[i])) {
+					countingKept++;
+				}
+				if(cuckoo.contains(values[i])) {
+					cuckooKept++;
+				}
+			}
+		}
+		System.out.println(String.format("Counting bloom filter: duplicates kept after one remove %.2f%% (%d/%d)", (double) countingKept*100/duplicates, countingKept, duplicates));
+		System.out.println(String.format("Cuckoo filter: duplicates kept after one remove %.2f%% (%d/%d)", (double) cuckooKept*100/duplicates, cuckooKept, duplicates));
+		for(int i=0;i<values.length;i++) {
+			for(int j=1;j<=i%3;j++) {
+				counting.remove(values[i]);
+				cuckoo.remove(values[i]);
+			}
+		}
+		int countingRemoved = 0, cuckooRemoved = 0;
+		for(int i=0;i<values.length;i++) {
+			if(!counting.contains(values[i])) {
+				countingRemoved++;
+			}
+			if(!cuckoo.contains(values[i])) {
+				cuckooRemoved++;
+			}
+		}
+		System.out.println(String.format("Counting bloom filter: values gone after the last remove %.2f%% (%d/%d)", (double) countingRemoved*100/values.length, countingRemoved, values.length));
+		System.out.println(String.format("Cuckoo filter: values gone after the last remove %.2f%% (%d/%d), fingerprints left: %d", (double) cuckooRemoved*100/values.length, cuckooRemoved, values.length, cuckoo.size()));
+	}
+	
+	// each filter is saved, loaded memory mapped and changed: the loaded one must have every value and the file must stay as it was saved
+	public static void testBloomFilterStorage(int value, double falsePositiveProbability) throws IOException {
+		System.out.println("TESTING BLOOM FILTER STORAGE...");
+		String[] values = getRandomStrings(value);
+		String[] newValues = getRandomStrings(value/10);
+		// the sharded filter is filled in two halves and merged, like two workers would do
+		ShardedBloomFilter sharded = new ShardedBloomFilter(16, value, falsePositiveProbability);
+		ShardedBloomFilter otherHalf = new ShardedBloomFilter(16, value, falsePositiveProbability);
+		for(int i=0;i<values.length;i++) {
+			if(i < values.length/2) {
+				sharded.add(values[i]);
+			}
+			else {
+				otherHalf.add(values[i]);
+			}
+		}
+		sharded.union(otherHalf);
+		BloomFilter[] filters = {
+			new BloomFilterBitSet(value, falsePositiveProbability),
+			new BloomFilterOptimized(value, falsePositiveProbability),
+			new BloomFilterConcurrent(value, falsePositiveProbability),
+			new BloomFilterIncremental(value, falsePositiveProbability),
+			new BloomFilterIncrementalConcurrent(value, falsePositiveProbability),
+			new BloomFilterCounting(value, falsePositiveProbability),
+			new BloomFilterBlocked(value, falsePositiveProbability),
+			new ScalableBloomFilter(value/16, falsePositiveProbability),
+			new CuckooFilter(value),
+			sharded		// already filled
+		};
+		for(int i=0;i<filters.length-1;i++) {
+			for(String v: values) {
+				filters[i].add(v);
+			}
+		}
+		for(BloomFilter filter: filters) {
+			File file = File.createTempFile("bloom", ".bf");
+			try {
+				BloomFilterStorage.save(filter, file);
+				byte[] saved = Files.readAllBytes(file.toPath());
+				BloomFilter loaded = BloomFilterStorage.load(file);
+				int found = 0;
+				for(String v: values) {
+					if(loaded.contains(v)) {
+						found++;
+					}
+				}
+				// the mapping is read only, the first add copies the bits
+				for(String v: newValues) {
+					loaded.add(v);
+				}
+				int newFound = 0;
+				for(String v: newValues) {
+					if(loaded.contains(v)) {
+						newFound++;
+					}
+				}
+				boolean unchanged = Arrays.equals(saved, Files.readAllBytes(file.toPath()));
+				System.out.println(String.format("%s: values found after load %.2f%% (%d/%d), new values found %.2f%% (%d/%d), file unchanged: %b", filter.getClass().getSimpleName(), (double) found*100/values.length, found, values.length, (double) newFound*100/newValues.length, newFound, newValues.length, unchanged));
+			}
+			finally {
+				file.delete();
+			}
+		}
+	}
+	
+	// skewed stream: the value of rank r appears 100000/r times, in random order, so the top k are the values of rank 1 to k
+	public static void testCountMinSketch(int value, int k) {
+		System.out.println("TESTING COUNT-MIN SKETCH TOP K...");
+		String[] values = getRandomStrings(value);
+		List<String> stream = new ArrayList<String>();
+		for(int r=1;r<=values.length;r++) {
+			for(int i=0;i<100000/r;i++) {
+				stream.add(values[r-1]);
+			}
+		}
+		Collections.shuffle(stream);
+		boolean[] conservativeUpdates = {false, true};
+		for(boolean conservativeUpdate: conservativeUpdates) {
+			CountMinSketch sketch = new CountMinSketch(0.0001, 0.001, conservativeUpdate, 100);
+			for(String v: stream) {
+				sketch.add(v);
+			}
+			List<String> topK = sketch.getHeavyHitters(k);
+			int found = 0;
+			double errorSum = 0;
+			for(int r=1;r<=k;r++) {
+				if(topK.contains(values[r-1])) {
+					found++;
+				}
+				errorSum += (double) (sketch.estimate(values[r-1]) - 100000/r)/(100000/r);
+			}
+			System.out.println(String.format("%s: real top %d found %.2f%% (%d/%d), mean overestimation of their counts %.4f%% (%d values in the stream)", conservativeUpdate ? "Conservative update" : "Count-Min sketch", k, (double) found*100/k, found, k, errorSum*100/k, stream.size()));
+		}
+	}
+	
+	// the records of the parallel parser must be the same as the ones of a single parser, with and without projection
+	public static void testParallelCSVParser(String fileName, int threads) throws IOException {
+		System.out.println("TESTING PARALLEL CSV PARSER...");
+		CSVFormat format = CSVFormat.RFC4180.withFirstRecordAsHeader();
+		String[][] projections = {null, {"id", "title", "publication", "author", "content"}};
+		for(String[] projection: projections) {
+			List<CSVRecord> expected;
+			try(CSVParser parser = CSVParser.parse(new File(fileName), StandardCharsets.UTF_8, format)) {
+				if(projection != null) {
+					parser.setProjection(projection);
+				}
+				expected = parser.getRecords();
+			}
+			ParallelCSVParser parallelParser = new ParallelCSVParser(new File(fileName).toPath(), format, threads);
+			if(projection != null) {
+				parallelParser.setProjection(projection);
+			}
+			List<CSVRecord> records = parallelParser.getRecords();
+			int equal = 0;
+			for(int i=0;i<Math.min(expected.size(), records.size());i++) {
+				if(sameRecord(expected.get(i), records.get(i))) {
+					equal++;
+				}
+			}
+			System.out.println(String.format("%s: records equal to CSVParser %.2f%% (%d/%d), records parsed: %d", projection == null ? "All columns" : "Projection", (double) equal*100/expected.size(), equal, expected.size(), records.size()));
+		}
+	}
+	
+	// every column of every record read from the mapped bytes must be the same as the value of CSVParser
+	public static void testMappedCSVParser(String fileName) throws IOException {
+		System.out.println("TESTING MAPPED CSV PARSER...");
+		CSVFormat format = CSVFormat.RFC4180.withFirstRecordAsHeader();
+		List<CSVRecord> expected;
+		List<String> headerNames;
+		try(CSVParser parser = CSVParser.parse(new File(fileName), StandardCharsets.UTF_8, format)) {
+			expected = parser.getRecords();
+			headerNames = parser.getHeaderNames();
+		}
+		int equal = 0, parsed = 0;
+		try(MappedCSVParser parser = new MappedCSVParser(new File(fileName).toPath(), format, headerNames.toArray(new String[headerNames.size()]))) {
+			while(parser.next()) {
+				if(parsed < expected.size()) {
+					CSVRecord record = expected.get(parsed);
+					boolean same = record.getRecordNumber() == parser.getRecordNumber();
+					for(int i=0;i<record.size() && same;i++) {
+						same = record.get(i).equals(parser.get(i));
+					}
+					if(same) {
+						equal++;
+					}
+				}
+				parsed++;
+			}
+		}
+		System.out.println(String.format("Mapped parser: records equal to CSVParser %.2f%% (%d/%d), records parsed: %d", (double) equal*100/expected.size(), equal, expected.size(), parsed));
+	}
+	
+	private static boolean sameRecord(CSVRecord expected, CSVRecord record) {
+		if(expected.size() != record.size() || expected.getRecordNumber() != record.getRecordNumber() || expected.getCharacterPosition() != record.getCharacterPosition()) {
+			return false;
+		}
+		for(int i=0;i<expected.size();i++) {
+			if(!expected.get(i).equals(record.get(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	private static String[] getRandomStrings(int values) {